@@ -0,0 +1,74 @@
+// Harness for comparing platform-thread and virtual-thread request execution under the same closed-model load.
+// Open follow-up: the throughput and p99 comparison has not been run yet. It needs the app on JDK 21 against the
+// MySQL of docker-compose, so spring.threads.virtual.enabled stays false by default until numbers for both modes,
+// with the JDK, host, VUS and db latency they were taken with, are recorded here.
+// Run once per mode against the same database and compare http_reqs/s and the p(99) of http_req_duration:
+//
+//   java -jar app.jar --spring.threads.virtual.enabled=false --response-cache.enabled=false
+//   k6 run -e BASE_URL=http://localhost:80 -e MODE=platform Secao_05/load-test/virtual-threads.js
+//
+//   java -jar app.jar --spring.threads.virtual.enabled=true --response-cache.enabled=false
+//   k6 run -e BASE_URL=http://localhost:80 -e MODE=virtual Secao_05/load-test/virtual-threads.js
+//
+// The gap only shows once the database is slow, e.g. with 20ms added latency on the db container:
+//   docker compose exec db tc qdisc add dev eth0 root netem delay 20ms   (needs cap_add: NET_ADMIN)
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:80';
+const MODE = __ENV.MODE || 'unknown';
+const VUS = parseInt(__ENV.VUS || '400');
+const PEOPLE = parseInt(__ENV.PEOPLE || '1000');
+
+export const options = {
+    scenarios: {
+        reads: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: VUS },
+                { duration: '2m', target: VUS },
+                { duration: '10s', target: 0 },
+            ],
+            gracefulRampDown: '10s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+    tags: { mode: MODE },
+};
+
+export function setup() {
+    const res = http.post(`${BASE_URL}/auth/signin`,
+        JSON.stringify({ userName: __ENV.USERNAME || 'leandro', password: __ENV.PASSWORD || 'admin123' }),
+        { headers: { 'Content-Type': 'application/json' } });
+    check(res, { 'signed in': (r) => r.status === 200 });
+    return { token: res.json('accessToken') };
+}
+
+export default function (data) {
+    const params = { headers: { Authorization: `Bearer ${data.token}`, Accept: 'application/json' } };
+    const roll = Math.random();
+    let res;
+    if (roll < 0.6) {
+        res = http.get(`${BASE_URL}/api/person/v1/${1 + Math.floor(Math.random() * PEOPLE)}`,
+            Object.assign({ tags: { name: 'person-by-id' } }, params));
+    } else if (roll < 0.9) {
+        res = http.get(`${BASE_URL}/api/person/v1?page=${Math.floor(Math.random() * 50)}&size=12`,
+            Object.assign({ tags: { name: 'person-page' } }, params));
+    } else {
+        res = http.get(`${BASE_URL}/api/book/v1?page=0&size=12`,
+            Object.assign({ tags: { name: 'book-page' } }, params));
+    }
+    check(res, { 'found or missing': (r) => r.status === 200 || r.status === 404 });
+}
+
+export function handleSummary(data) {
+    const duration = data.metrics.http_req_duration.values;
+    const line = `${MODE}: ${data.metrics.http_reqs.values.rate.toFixed(1)} req/s, ` +
+        `p50 ${duration['p(50)'].toFixed(1)}ms, p99 ${duration['p(99)'].toFixed(1)}ms, ` +
+        `failed ${(data.metrics.http_req_failed.values.rate * 100).toFixed(2)}%\n`;
+    return {
+        stdout: line,
+        [`load-test-${MODE}.json`]: JSON.stringify(data, null, 2),
+    };
+}
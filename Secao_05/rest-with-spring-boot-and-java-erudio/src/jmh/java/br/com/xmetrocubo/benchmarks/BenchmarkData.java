@@ -0,0 +1,46 @@
+package br.com.xmetrocubo.benchmarks;
+
+import br.com.xmetrocubo.data.vo.v1.PersonVO;
+import br.com.xmetrocubo.model.Person;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class BenchmarkData {
+
+    static final int PAGE_SIZE = 12;
+
+    private BenchmarkData() {
+    }
+
+    static Person person(int number) {
+        Person person = new Person();
+        person.setId((long) number);
+        person.setFirstName("First Name " + number);
+        person.setLastName("Last Name " + number);
+        person.setAddress("Address " + number);
+        person.setGender(number % 2 == 0 ? "Male" : "Female");
+        person.setEnabled(true);
+        return person;
+    }
+
+    static PersonVO personVO(int number) {
+        PersonVO vo = new PersonVO();
+        vo.setKey((long) number);
+        vo.setFirstName("First Name " + number);
+        vo.setLastName("Last Name " + number);
+        vo.setAddress("Address " + number);
+        vo.setGender(number % 2 == 0 ? "Male" : "Female");
+        vo.setEnabled(true);
+        return vo;
+    }
+
+    // Binds a request like the one Tomcat hands to the controllers, so link building resolves absolute URIs
+    static void bindRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/person/v1");
+        request.setScheme("http");
+        request.setServerName("localhost");
+        request.setServerPort(80);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}
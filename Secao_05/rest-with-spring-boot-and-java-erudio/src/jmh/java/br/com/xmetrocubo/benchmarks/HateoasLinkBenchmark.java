@@ -0,0 +1,59 @@
+package br.com.xmetrocubo.benchmarks;
+
+import br.com.xmetrocubo.controller.PersonController;
+import br.com.xmetrocubo.hateoas.ItemLinks;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.Link;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HateoasLinkBenchmark {
+
+    private long id;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData.bindRequest();
+    }
+
+    @Benchmark
+    public Link findByIdSelfLink() {
+        return linkTo(methodOn(PersonController.class).findById(++id, null)).withSelfRel();
+    }
+
+    @Benchmark
+    public Link findAllSelfLink() {
+        return linkTo(methodOn(PersonController.class).finAdll(0, 12, "asc", null)).withSelfRel();
+    }
+
+    // Per listed page, run with -prof gc to compare the allocation per entity
+    @Benchmark
+    public List<Link> pageSelfLinksMethodOn() {
+        List<Link> links = new ArrayList<>(BenchmarkData.PAGE_SIZE);
+        for (int i = 0; i < BenchmarkData.PAGE_SIZE; i++) {
+            links.add(linkTo(methodOn(PersonController.class).findById((long) i, null)).withSelfRel());
+        }
+        return links;
+    }
+
+    @Benchmark
+    public List<Link> pageSelfLinksItemLinks() {
+        var itemLinks = ItemLinks.of(PersonController.class);
+        List<Link> links = new ArrayList<>(BenchmarkData.PAGE_SIZE);
+        for (int i = 0; i < BenchmarkData.PAGE_SIZE; i++) {
+            links.add(itemLinks.self((long) i));
+        }
+        return links;
+    }
+}
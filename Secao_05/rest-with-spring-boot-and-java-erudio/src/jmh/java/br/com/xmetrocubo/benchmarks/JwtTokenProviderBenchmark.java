@@ -0,0 +1,69 @@
+package br.com.xmetrocubo.benchmarks;
+
+import br.com.xmetrocubo.model.Permission;
+import br.com.xmetrocubo.model.User;
+import br.com.xmetrocubo.security.jwt.JwtTokenProvider;
+import br.com.xmetrocubo.security.jwt.RevokedUsers;
+import br.com.xmetrocubo.security.jwt.VerifiedTokenCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider provider;
+    private String accessToken;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData.bindRequest();
+
+        Permission permission = new Permission();
+        permission.setId(1L);
+        permission.setDescription("ADMIN");
+        User user = new User();
+        user.setUserName("leandro");
+        user.setPermissions(List.of(permission));
+        UserDetailsService userDetailsService = username -> user;
+
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache();
+        ReflectionTestUtils.invokeMethod(tokenCache, "init");
+        RevokedUsers revokedUsers = new RevokedUsers();
+        ReflectionTestUtils.invokeMethod(revokedUsers, "init");
+
+        provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "secretKey", "53cr37");
+        ReflectionTestUtils.setField(provider, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(provider, "tokenCache", tokenCache);
+        ReflectionTestUtils.setField(provider, "revokedUsers", revokedUsers);
+        ReflectionTestUtils.invokeMethod(provider, "init");
+
+        accessToken = provider.createAccessToken("leandro", List.of("ADMIN")).getAccessToken();
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return provider.validateToken(accessToken);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication() {
+        return provider.getAuthentication(accessToken);
+    }
+
+    // What JwtTokenFilter does for every authenticated request
+    @Benchmark
+    public Authentication filterPath() {
+        return provider.validateToken(accessToken) ? provider.getAuthentication(accessToken) : null;
+    }
+}
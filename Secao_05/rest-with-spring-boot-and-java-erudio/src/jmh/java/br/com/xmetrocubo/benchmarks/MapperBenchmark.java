@@ -0,0 +1,65 @@
+package br.com.xmetrocubo.benchmarks;
+
+import br.com.xmetrocubo.data.vo.v1.BookVO;
+import br.com.xmetrocubo.data.vo.v1.PersonVO;
+import br.com.xmetrocubo.mapper.DozerMapper;
+import br.com.xmetrocubo.model.Book;
+import br.com.xmetrocubo.model.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private Person person;
+    private PersonVO personVO;
+    private Book book;
+    private List<Person> page;
+
+    @Setup
+    public void setUp() {
+        person = BenchmarkData.person(1);
+        personVO = DozerMapper.parseObject(person, PersonVO.class);
+
+        book = new Book();
+        book.setId(1L);
+        book.setAuthor("Michael C. Feathers");
+        book.setTitle("Working effectively with legacy code");
+        book.setPrice(49.0);
+        book.setLaunchDate(new Date());
+
+        page = new ArrayList<>();
+        for (int i = 0; i < BenchmarkData.PAGE_SIZE; i++) {
+            page.add(BenchmarkData.person(i));
+        }
+    }
+
+    @Benchmark
+    public PersonVO personToVO() {
+        return DozerMapper.parseObject(person, PersonVO.class);
+    }
+
+    @Benchmark
+    public Person personVOToEntity() {
+        return DozerMapper.parseObject(personVO, Person.class);
+    }
+
+    @Benchmark
+    public BookVO bookToVO() {
+        return DozerMapper.parseObject(book, BookVO.class);
+    }
+
+    @Benchmark
+    public List<PersonVO> personPageToVOs() {
+        return DozerMapper.parseListObjects(page, PersonVO.class);
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.xmetrocubo.benchmarks;
+
+import br.com.xmetrocubo.data.vo.v1.PersonVO;
+import br.com.xmetrocubo.serialization.converter.YamlJackson2HttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.xml.MappingJackson2XmlHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PagedModelSerializationBenchmark {
+
+    private static final MediaType APPLICATION_YML = MediaType.parseMediaType("application/x-yaml");
+
+    private PagedModel<EntityModel<PersonVO>> page;
+    private AbstractJackson2HttpMessageConverter json;
+    private AbstractJackson2HttpMessageConverter xml;
+    private AbstractJackson2HttpMessageConverter yaml;
+
+    @Setup
+    public void setUp() {
+        List<EntityModel<PersonVO>> content = new ArrayList<>();
+        for (int i = 0; i < BenchmarkData.PAGE_SIZE; i++) {
+            PersonVO vo = BenchmarkData.personVO(i);
+            vo.add(Link.of("http://localhost/api/person/v1/" + i));
+            content.add(EntityModel.of(vo));
+        }
+        page = PagedModel.of(content, new PagedModel.PageMetadata(BenchmarkData.PAGE_SIZE, 0, 1000),
+                Link.of("http://localhost/api/person/v1?page=0&size=12&direction=asc"),
+                Link.of("http://localhost/api/person/v1?direction=asc&page=1&size=12", "next"));
+
+        ObjectMapper halMapper = new ObjectMapper();
+        halMapper.registerModule(new Jackson2HalModule());
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        json = new MappingJackson2HttpMessageConverter(halMapper);
+        json.setSupportedMediaTypes(List.of(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON));
+
+        xml = new MappingJackson2XmlHttpMessageConverter();
+        yaml = new YamlJackson2HttpMessageConverter();
+    }
+
+    @Benchmark
+    public byte[] json() throws IOException {
+        return write(json, MediaType.APPLICATION_JSON);
+    }
+
+    @Benchmark
+    public byte[] xml() throws IOException {
+        return write(xml, MediaType.APPLICATION_XML);
+    }
+
+    @Benchmark
+    public byte[] yaml() throws IOException {
+        return write(yaml, APPLICATION_YML);
+    }
+
+    private byte[] write(AbstractJackson2HttpMessageConverter converter, MediaType mediaType) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(page, mediaType, output);
+        return output.getBodyAsBytes();
+    }
+}
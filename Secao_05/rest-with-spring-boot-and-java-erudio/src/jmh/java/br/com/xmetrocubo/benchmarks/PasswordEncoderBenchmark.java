@@ -0,0 +1,47 @@
+package br.com.xmetrocubo.benchmarks;
+
+import br.com.xmetrocubo.security.PasswordEncoders;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+// A single benchmark thread keeps one core busy, so each score reads as hashes per second per core:
+// size the sign-in executor and the nodes from the row matching security.password.pbkdf2-iterations
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class PasswordEncoderBenchmark {
+
+    @Param({"185000", "310000", "600000"})
+    private int iterations;
+
+    private PasswordEncoder encoder;
+    private PasswordEncoder legacy;
+    private String encoded;
+    private String legacyEncoded;
+
+    @Setup
+    public void setUp() {
+        encoder = PasswordEncoders.create(iterations);
+        legacy = PasswordEncoders.legacy();
+        encoded = encoder.encode("admin123");
+        legacyEncoded = legacy.encode("admin123");
+    }
+
+    // What a sign-in costs once the hash uses the configured work factor
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches("admin123", encoded);
+    }
+
+    // The first sign-in of a legacy hash: match with the old parameters, then rehash with the new ones
+    @Benchmark
+    public String upgradeOnLogin() {
+        return legacy.matches("admin123", legacyEncoded) ? encoder.encode("admin123") : null;
+    }
+}
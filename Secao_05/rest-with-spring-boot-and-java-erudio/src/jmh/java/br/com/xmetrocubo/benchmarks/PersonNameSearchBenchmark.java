@@ -0,0 +1,141 @@
+package br.com.xmetrocubo.benchmarks;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Compares the old LIKE scan with the ngram FULLTEXT search on a populated person table:
+// mvn -P benchmark -DskipTests verify -Djmh.args="PersonNameSearchBenchmark"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonNameSearchBenchmark {
+
+    private static final String[] SYLLABLES = {"an", "ay", "ber", "car", "da", "el", "fer", "gus", "hel", "ir",
+            "jo", "ka", "lu", "mar", "na", "ol", "pe", "qui", "ro", "sen", "ta", "ul", "vi", "wes", "xa", "yr", "zo", "ton"};
+
+    private static final String LIKE_SEARCH = "FROM person p WHERE LOWER(p.first_name) LIKE LOWER(CONCAT('%', ?, '%'))";
+
+    private static final String FULLTEXT_SEARCH = "FROM person p WHERE MATCH(p.first_name, p.last_name) AGAINST (? IN BOOLEAN MODE) " +
+            "AND (LOWER(p.first_name) LIKE LOWER(CONCAT('%', ?, '%')) OR LOWER(p.last_name) LIKE LOWER(CONCAT('%', ?, '%')))";
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    @Param({"ayr", "senton"})
+    private String name;
+
+    private MySQLContainer<?> mysql;
+    private Connection connection;
+    private PreparedStatement likePage;
+    private PreparedStatement likeCount;
+    private PreparedStatement fullTextPage;
+    private PreparedStatement fullTextCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        mysql = new MySQLContainer<>("mysql:8.0.30");
+        mysql.start();
+        var url = mysql.getJdbcUrl() + "?rewriteBatchedStatements=true";
+
+        // Load the rows before the FULLTEXT index exists so the bulk insert does not pay for it
+        Flyway.configure().dataSource(url, mysql.getUsername(), mysql.getPassword()).target("14").load().migrate();
+        connection = DriverManager.getConnection(url, mysql.getUsername(), mysql.getPassword());
+        populate();
+        Flyway.configure().dataSource(url, mysql.getUsername(), mysql.getPassword()).load().migrate();
+
+        likePage = connection.prepareStatement("SELECT p.* " + LIKE_SEARCH + " ORDER BY p.first_name LIMIT 12");
+        likeCount = connection.prepareStatement("SELECT COUNT(*) " + LIKE_SEARCH);
+        fullTextPage = connection.prepareStatement("SELECT p.* " + FULLTEXT_SEARCH + " ORDER BY p.first_name LIMIT 12");
+        fullTextCount = connection.prepareStatement("SELECT COUNT(*) " + FULLTEXT_SEARCH);
+    }
+
+    private void populate() throws SQLException {
+        var random = new Random(42);
+        connection.setAutoCommit(false);
+        try (var insert = connection.prepareStatement(
+                "INSERT INTO person (first_name, last_name, address, gender, enabled) VALUES (?, ?, ?, ?, b'1')")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, randomName(random));
+                insert.setString(2, randomName(random));
+                insert.setString(3, i + " Benchmark Street");
+                insert.setString(4, i % 2 == 0 ? "Male" : "Female");
+                insert.addBatch();
+                if (i % 10_000 == 9_999) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+    }
+
+    private static String randomName(Random random) {
+        var builder = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        builder.setCharAt(0, Character.toUpperCase(builder.charAt(0)));
+        return builder.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        mysql.stop();
+    }
+
+    @Benchmark
+    public long likeScanPage() throws SQLException {
+        likePage.setString(1, name);
+        return drain(likePage);
+    }
+
+    @Benchmark
+    public long likeScanCount() throws SQLException {
+        likeCount.setString(1, name);
+        return drain(likeCount);
+    }
+
+    @Benchmark
+    public long fullTextPage() throws SQLException {
+        bindFullText(fullTextPage);
+        return drain(fullTextPage);
+    }
+
+    @Benchmark
+    public long fullTextCount() throws SQLException {
+        bindFullText(fullTextCount);
+        return drain(fullTextCount);
+    }
+
+    private void bindFullText(PreparedStatement statement) throws SQLException {
+        statement.setString(1, "\"" + name + "\"");
+        statement.setString(2, name);
+        statement.setString(3, name);
+    }
+
+    private static long drain(PreparedStatement statement) throws SQLException {
+        long checksum = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                checksum += rs.getLong(1);
+            }
+        }
+        return checksum;
+    }
+}
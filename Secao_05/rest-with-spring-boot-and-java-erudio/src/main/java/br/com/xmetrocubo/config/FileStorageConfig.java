@@ -2,6 +2,7 @@ package br.com.xmetrocubo.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
 @Configuration
 @ConfigurationProperties(prefix = "file")
@@ -9,6 +10,18 @@ public class FileStorageConfig {
 
     private String uploadDir;
 
+    private DataSize maxUploadSize = DataSize.ofMegabytes(200);
+
+    private int uploadThreads = 8;
+
+    private int uploadQueueCapacity = 64;
+
+    private int uploadBatchConcurrency = 4;
+
+    private long uploadSessionExpireAfter = 3600000;
+
+    private long uploadSessionMaxCount = 1000;
+
     public String getUploadDir() {
         return uploadDir;
     }
@@ -16,4 +29,52 @@ public class FileStorageConfig {
     public void setUploadDir(String uploadDir) {
         this.uploadDir = uploadDir;
     }
+
+    public DataSize getMaxUploadSize() {
+        return maxUploadSize;
+    }
+
+    public void setMaxUploadSize(DataSize maxUploadSize) {
+        this.maxUploadSize = maxUploadSize;
+    }
+
+    public int getUploadThreads() {
+        return uploadThreads;
+    }
+
+    public void setUploadThreads(int uploadThreads) {
+        this.uploadThreads = uploadThreads;
+    }
+
+    public int getUploadQueueCapacity() {
+        return uploadQueueCapacity;
+    }
+
+    public void setUploadQueueCapacity(int uploadQueueCapacity) {
+        this.uploadQueueCapacity = uploadQueueCapacity;
+    }
+
+    public int getUploadBatchConcurrency() {
+        return uploadBatchConcurrency;
+    }
+
+    public void setUploadBatchConcurrency(int uploadBatchConcurrency) {
+        this.uploadBatchConcurrency = uploadBatchConcurrency;
+    }
+
+    public long getUploadSessionExpireAfter() {
+        return uploadSessionExpireAfter;
+    }
+
+    public void setUploadSessionExpireAfter(long uploadSessionExpireAfter) {
+        this.uploadSessionExpireAfter = uploadSessionExpireAfter;
+    }
+
+    public long getUploadSessionMaxCount() {
+        return uploadSessionMaxCount;
+    }
+
+    public void setUploadSessionMaxCount(long uploadSessionMaxCount) {
+        this.uploadSessionMaxCount = uploadSessionMaxCount;
+    }
 }
@@ -0,0 +1,116 @@
+package br.com.xmetrocubo.config;
+
+import br.com.xmetrocubo.services.ResponseCache;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Registered after the security filter chain, so only authenticated requests get here and their roles are known
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final List<String> FORWARDED_HEADERS = List.of(
+            "Forwarded", "X-Forwarded-Host", "X-Forwarded-Port", "X-Forwarded-Proto", "X-Forwarded-Prefix");
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Autowired
+    private ContentNegotiationManager contentNegotiationManager;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+        if (!"GET".equals(request.getMethod()) || !responseCache.isCacheable(path)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key;
+        try {
+            key = key(request, path);
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            // Let Spring MVC produce its usual 406
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var cached = responseCache.get(key);
+        if (cached != null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(cached.getContentType());
+            response.setContentLength(cached.getBody().length);
+            response.getOutputStream().write(cached.getBody());
+            return;
+        }
+
+        var wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && !request.isAsyncStarted()) {
+            responseCache.put(key, new ResponseCache.CachedResponse(wrapper.getContentType(), wrapper.getContentAsByteArray()));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    // Everything the rendered page depends on: the link base URI, the query, the negotiated media type and the roles
+    private String key(HttpServletRequest request, String path) throws HttpMediaTypeNotAcceptableException {
+        var key = new StringBuilder(256);
+        key.append(responseCache.generation(path)).append('|')
+                .append(request.getRequestURL());
+
+        Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+        char separator = '?';
+        for (var parameter : parameters.entrySet()) {
+            for (String value : parameter.getValue()) {
+                key.append(separator).append(parameter.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+
+        for (String header : FORWARDED_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null) key.append('|').append(header).append('=').append(value);
+        }
+
+        List<MediaType> mediaTypes = contentNegotiationManager.resolveMediaTypes(new ServletWebRequest(request));
+        key.append('|').append(MediaType.toString(mediaTypes));
+
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        var roles = new TreeSet<String>();
+        if (authentication != null) {
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                roles.add(authority.getAuthority());
+            }
+        }
+        key.append('|').append(String.join(",", roles));
+        return key.toString();
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+
+    @Override
+    protected boolean shouldNotFilterErrorDispatch() {
+        return true;
+    }
+}
@@ -1,20 +1,17 @@
 package br.com.xmetrocubo.config;
 
+import br.com.xmetrocubo.security.PasswordEncoders;
 import br.com.xmetrocubo.security.jwt.JwtConfigurer;
 import br.com.xmetrocubo.security.jwt.JwtTokenProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
-
-import java.util.HashMap;
-import java.util.Map;
 
 @Configuration
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
@@ -22,13 +19,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Value("${security.password.pbkdf2-iterations:310000}")
+    private int pbkdf2Iterations = 310000;
+
     @Bean
     public PasswordEncoder passwordEncoder(){
-        Map<String, PasswordEncoder> encoders = new HashMap<>();
-        encoders.put("pbkdf2", new Pbkdf2PasswordEncoder());
-        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder("pbkdf2", encoders);
-        passwordEncoder.setDefaultPasswordEncoderForMatches(new Pbkdf2PasswordEncoder());
-        return passwordEncoder;
+        return PasswordEncoders.create(pbkdf2Iterations);
     }
 
     @Bean
@@ -46,10 +42,13 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                     .authorizeRequests()
                     .antMatchers("/auth/signin",
                             "/auth/refresh",
+                            "/auth/revoke",
                             "/api-docs/**",
-                            "/swagger-ui.html**"
+                            "/swagger-ui.html**",
+                            "/actuator/health"
                         ).permitAll()
                     .antMatchers("/api/**").authenticated()
+                    .antMatchers("/actuator/**").authenticated()
                     .antMatchers("/users").denyAll()
                 .and()
                     .cors()
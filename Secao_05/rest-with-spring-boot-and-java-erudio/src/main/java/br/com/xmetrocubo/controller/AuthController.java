@@ -1,14 +1,18 @@
 package br.com.xmetrocubo.controller;
 
 import br.com.xmetrocubo.data.vo.v1.security.AccountCredentialsVO;
+import br.com.xmetrocubo.security.LoginRateLimiter;
 import br.com.xmetrocubo.services.AuthServices;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @Tag(name = "Authentication Endpoint")
 @RestController
 @RequestMapping("/auth")
@@ -17,28 +21,33 @@ public class AuthController {
     @Autowired
     AuthServices authServices;
 
+    @Autowired
+    LoginRateLimiter rateLimiter;
+
     @SuppressWarnings("rawtypes")
     @Operation(summary = "Authenticates a user and returns a token")
     @PostMapping(value = "/signin")
-    public ResponseEntity sigin(@RequestBody AccountCredentialsVO data){
+    public CompletableFuture<ResponseEntity> sigin(@RequestBody AccountCredentialsVO data, HttpServletRequest request){
         if (checkIfParamsIsNotNull(data)){
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid client request");
-        }
-        var token = authServices.signin(data);
-        if (token == null){
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid client request");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid client request"));
         }
-        return token;
+        rateLimiter.check("signin", data.getUserName(), request.getRemoteAddr());
+        // The Tomcat worker is released while the password is checked on the sign-in executor
+        return authServices.signin(data).thenApply(token -> token == null
+                ? ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid client request")
+                : token);
     }
 
     @SuppressWarnings("rawtypes")
     @Operation(summary = "Refresh token for authentivcated user and returns a token")
     @PutMapping(value = "/refresh/{username}")
     public ResponseEntity refreshToken(@PathVariable("username") String username,
-                                       @RequestHeader("Authorization") String refreshToken){
+                                       @RequestHeader("Authorization") String refreshToken,
+                                       HttpServletRequest request){
         if (checkIfParamsIsNotNull(username, refreshToken)){
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid client request");
         }
+        rateLimiter.check("refresh", username, request.getRemoteAddr());
         var token = authServices.refreshToken(username, refreshToken);
         if (token == null){
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid client request");
@@ -46,6 +55,17 @@ public class AuthController {
         return token;
     }
 
+    @SuppressWarnings("rawtypes")
+    @Operation(summary = "Revokes a refresh token so it can no longer be exchanged for a new token")
+    @PostMapping(value = "/revoke")
+    public ResponseEntity revokeToken(@RequestHeader("Authorization") String refreshToken){
+        if (refreshToken == null || refreshToken.isBlank()){
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Invalid client request");
+        }
+        authServices.revokeRefreshToken(refreshToken);
+        return ResponseEntity.noContent().build();
+    }
+
     private boolean checkIfParamsIsNotNull(AccountCredentialsVO data){
         return data == null
                 || data.getUserName() == null || data.getUserName().isBlank()
@@ -2,20 +2,29 @@ package br.com.xmetrocubo.controller;
 
 import br.com.xmetrocubo.data.vo.v1.BookVO;
 import br.com.xmetrocubo.services.BookServices;
+import br.com.xmetrocubo.util.CountMode;
+import br.com.xmetrocubo.util.ETags;
+import br.com.xmetrocubo.util.ExportFormat;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
-import org.springframework.hateoas.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 import static br.com.xmetrocubo.util.MediaType.*;
 
@@ -45,12 +54,62 @@ public class BookController {
                     @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content),
             }
     )
-    public ResponseEntity<PagedModel<EntityModel<BookVO>>> finAdll(@RequestParam(value = "page", defaultValue = "0") Integer page,
+    public ResponseEntity<CollectionModel<EntityModel<BookVO>>> finAdll(@RequestParam(value = "page", defaultValue = "0") Integer page,
                                                                      @RequestParam(value = "size", defaultValue = "12") Integer size,
-                                                                     @RequestParam(value = "direction", defaultValue = "asc") String direction) {
+                                                                     @RequestParam(value = "direction", defaultValue = "asc") String direction,
+                                                                     @RequestParam(value = "count", defaultValue = "exact") String count) {
         var sortDirection = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, "title"));
-        return ResponseEntity.ok(service.findAll(pageable));
+        return ResponseEntity.ok(service.findAll(pageable, CountMode.of(count)));
+    }
+
+    @GetMapping(value = "/cursor",
+            produces = {APPLICATION_JSON, APPLICATION_XML, APPLICATION_YML})
+    @Operation(summary = "Finds all Book using a cursor",
+            description = "Finds all Book ordered by title, following the opaque cursors in the next and prev links",
+            tags = {"Book"},
+            responses = {
+                    @ApiResponse(description = "Success", responseCode = "200",
+                            content = {
+                                    @Content(
+                                            mediaType = "application/json",
+                                            array = @ArraySchema(schema = @Schema(implementation = BookVO.class))
+                                    )
+                            }),
+                    @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
+                    @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
+                    @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content),
+            }
+    )
+    public ResponseEntity<CollectionModel<EntityModel<BookVO>>> findAllByCursor(@RequestParam(value = "after", required = false) String after,
+                                                                                @RequestParam(value = "before", required = false) String before,
+                                                                                @RequestParam(value = "size", defaultValue = "12") Integer size,
+                                                                                @RequestParam(value = "direction", defaultValue = "asc") String direction) {
+        var sortDirection = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return ResponseEntity.ok(service.findAllByCursor(after, before, size, sortDirection));
+    }
+
+    @GetMapping(value = "/export",
+            produces = {APPLICATION_NDJSON, TEXT_CSV})
+    @Operation(summary = "Exports all Books",
+            description = "Streams every Book in a single response, as NDJSON or as CSV when the Accept header asks for text/csv",
+            tags = {"Book"},
+            responses = {
+                    @ApiResponse(description = "Success", responseCode = "200",
+                            content = {
+                                    @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = BookVO.class)),
+                                    @Content(mediaType = "text/csv")
+                            }),
+                    @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
+                    @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content),
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> export(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        var format = ExportFormat.fromAccept(accept);
+        StreamingResponseBody body = out -> service.export(format, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, format.getMediaType())
+                .body(body);
     }
 
     @GetMapping(value = "/{id}",
@@ -62,14 +121,18 @@ public class BookController {
                             content = @Content(schema = @Schema(implementation = BookVO.class))
                     ),
                     @ApiResponse(description = "No Content", responseCode = "204", content = @Content),
+                    @ApiResponse(description = "Not Modified", responseCode = "304", content = @Content),
                     @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
                     @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
                     @ApiResponse(description = "Not Found", responseCode = "404", content = @Content),
                     @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content),
             }
     )
-    public BookVO findById(@PathVariable(value = "id") Long id) {
-        return service.findById(id);
+    public BookVO findById(@PathVariable(value = "id") Long id, NativeWebRequest request) {
+        var accept = request.getHeader(HttpHeaders.ACCEPT);
+        // The tag depends on the representation, so a cached copy is only valid for the same Accept
+        request.getNativeResponse(HttpServletResponse.class).addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return service.findById(id, version -> request.checkNotModified(ETags.of(version, accept)));
     }
 
     @PostMapping(
@@ -91,6 +154,48 @@ public class BookController {
         return service.create(book);
     }
 
+    @PostMapping(value = "/bulk",
+            consumes = {APPLICATION_JSON, APPLICATION_XML, APPLICATION_YML},
+            produces = {APPLICATION_JSON, APPLICATION_XML, APPLICATION_YML})
+    @Operation(summary = "Adds many Books",
+            description = "Adds many Books at once by passing in a JSON, XML or YML array, persisted in JDBC batches",
+            tags = {"Book"},
+            responses = {
+                    @ApiResponse(description = "Success", responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = BookVO.class)))
+                    ),
+                    @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
+                    @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
+                    @ApiResponse(description = "Payload Too Large", responseCode = "413", content = @Content),
+                    @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content),
+            }
+    )
+    public List<BookVO> bulkCreate(@RequestBody List<BookVO> books) {
+        return service.bulkCreate(books);
+    }
+
+    @PutMapping(value = "/bulk",
+            consumes = {APPLICATION_JSON, APPLICATION_XML, APPLICATION_YML},
+            produces = {APPLICATION_JSON, APPLICATION_XML, APPLICATION_YML})
+    @Operation(summary = "Updates many Books",
+            description = "Updates many Books at once by passing in a JSON, XML or YML array, persisted in JDBC batches; an item carrying a version is only applied while that version is current",
+            tags = {"Book"},
+            responses = {
+                    @ApiResponse(description = "Updated", responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = BookVO.class)))
+                    ),
+                    @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
+                    @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content = @Content),
+                    @ApiResponse(description = "Precondition Failed", responseCode = "412", content = @Content),
+                    @ApiResponse(description = "Payload Too Large", responseCode = "413", content = @Content),
+                    @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content),
+            }
+    )
+    public List<BookVO> bulkUpdate(@RequestBody List<BookVO> books) {
+        return service.bulkUpdate(books);
+    }
+
     @PutMapping(
             consumes = {APPLICATION_JSON, APPLICATION_XML, APPLICATION_YML},
             produces = {APPLICATION_JSON, APPLICATION_XML, APPLICATION_YML})
@@ -104,11 +209,15 @@ public class BookController {
                     @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
                     @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
                     @ApiResponse(description = "Not Found", responseCode = "404", content = @Content),
+                    @ApiResponse(description = "Precondition Failed", responseCode = "412", content = @Content),
                     @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content),
             }
     )
-    public BookVO update(@RequestBody BookVO book) {
-        return service.update(book);
+    public ResponseEntity<BookVO> update(@RequestBody BookVO book,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        var vo = service.update(book, ifMatch);
+        return ResponseEntity.ok().eTag(ETags.of(vo.getVersion(), accept)).varyBy(HttpHeaders.ACCEPT).body(vo);
     }
 
 
@@ -1,72 +1,155 @@
 package br.com.xmetrocubo.controller;
 
+import br.com.xmetrocubo.data.vo.v1.StoredFileVO;
 import br.com.xmetrocubo.data.vo.v1.UploadFileResponseVO;
+import br.com.xmetrocubo.data.vo.v1.UploadSessionVO;
+import br.com.xmetrocubo.services.FileDownloadService;
 import br.com.xmetrocubo.services.FileStorageService;
+import br.com.xmetrocubo.services.UploadSessionService;
+import br.com.xmetrocubo.util.MediaType;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 @Tag(name = "File Endpoint")
 @RestController
 @RequestMapping("/api/file/v1")
 public class FileController {
 
-    private final Logger logger = Logger.getLogger(FileController.class.getName());
+    private final Logger logger = LoggerFactory.getLogger(FileController.class);
 
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
     @PostMapping("/uploadFile")
     public UploadFileResponseVO uploadFile(@RequestParam("file") MultipartFile file){
         logger.info("Storing file to disk");
-        var filename = fileStorageService.storeFile(file);
-        String fileDownloadUri = ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path("/api/file/v1/downloadFile/")
-                .path(filename)
-                .toUriString();
-        return new UploadFileResponseVO(filename, fileDownloadUri, file.getContentType(), file.getSize());
+        var response = fileStorageService.storeFile(file);
+        response.setFileDownloadUri(downloadUri(response.getFileName()));
+        return response;
     }
 
     @PostMapping("/uploadMultipleFiles")
     public List<UploadFileResponseVO> uploadMultipleFiles(@RequestParam("files") MultipartFile[] files){
         logger.info("Storing files to disk");
-        return Arrays.asList(files)
-                .stream()
-                .map(file -> uploadFile(file))
-                .collect(Collectors.toList());
+        var responses = fileStorageService.storeFiles(files);
+        for (UploadFileResponseVO response : responses) {
+            if (response.getError() == null) response.setFileDownloadUri(downloadUri(response.getFileName()));
+        }
+        return responses;
+    }
+
+    // Raw request body instead of multipart, so the bytes are written once to their final place
+    @PutMapping("/upload/{filename:.+}")
+    public UploadFileResponseVO uploadStream(@PathVariable String filename, HttpServletRequest request) throws IOException {
+        logger.info("Streaming file to disk");
+        var response = fileStorageService.storeStream(filename, request.getContentType(), request.getInputStream());
+        response.setFileDownloadUri(downloadUri(response.getFileName()));
+        return response;
+    }
+
+    // Resumable upload: create a session, PUT the chunks at their offsets in any order, then complete it
+    @PostMapping("/sessions")
+    public ResponseEntity<UploadSessionVO> createSession(@RequestBody UploadSessionVO session){
+        logger.info("Starting an upload session");
+        var created = uploadSessionService.create(session);
+        var location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(created.getId()).toUri();
+        return ResponseEntity.created(location).body(created);
+    }
+
+    @GetMapping("/sessions/{id}")
+    public UploadSessionVO findSession(@PathVariable String id){
+        return uploadSessionService.find(id);
+    }
+
+    @PutMapping("/sessions/{id}/chunks")
+    public UploadSessionVO uploadChunk(@PathVariable String id, @RequestParam long offset,
+                                       @RequestHeader(value = "X-Chunk-SHA256", required = false) String chunkSha256,
+                                       HttpServletRequest request) throws IOException {
+        return uploadSessionService.writeChunk(id, offset, request.getContentLengthLong(), chunkSha256, request.getInputStream());
+    }
+
+    @PostMapping("/sessions/{id}/complete")
+    public UploadFileResponseVO completeSession(@PathVariable String id){
+        logger.info("Completing an upload session");
+        var response = uploadSessionService.complete(id);
+        response.setFileDownloadUri(downloadUri(response.getFileName()));
+        return response;
+    }
+
+    @DeleteMapping("/sessions/{id}")
+    public ResponseEntity<?> abortSession(@PathVariable String id){
+        uploadSessionService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(value = "/files", produces = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_YML})
+    public ResponseEntity<CollectionModel<EntityModel<StoredFileVO>>> findAll(@RequestParam(value = "page", defaultValue = "0") Integer page,
+                                                                             @RequestParam(value = "size", defaultValue = "12") Integer size,
+                                                                             @RequestParam(value = "direction", defaultValue = "desc") String direction){
+        var sortDirection = "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, "createdAt"));
+        return ResponseEntity.ok(fileStorageService.findAll(pageable));
     }
 
     @GetMapping("/downloadFile/{filename:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String filename, HttpServletRequest request){
+    public void downloadFile(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response) throws IOException {
         logger.info("Reading file on disk");
-        Resource resource = fileStorageService.loadFileAsResource(filename);
-        String contentType = "";
-
-        try{
-            contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-        } catch (Exception e){
-            logger.info("Could not determine file type!");
+        var stored = fileStorageService.findMetadata(filename);
+        if (stored.isPresent()) {
+            String contentType = stored.get().getContentType();
+            fileDownloadService.send(fileStorageService.contentPath(stored.get()), stored.get(),
+                    contentType == null || contentType.isBlank() ? contentType(filename, request) : contentType, request, response);
+            return;
         }
 
-        if (contentType.isBlank()){
+        Path file = fileStorageService.loadLegacyFile(filename);
+        fileDownloadService.send(file, filename, contentType(filename, request), request, response);
+    }
+
+    private String contentType(String filename, HttpServletRequest request){
+        String contentType = request.getServletContext().getMimeType(filename);
+        if (contentType == null || contentType.isBlank()){
+            logger.info("Could not determine file type!");
             contentType = "application/octet-stream";
         }
+        return contentType;
+    }
+
+    @DeleteMapping("/deleteFile/{filename:.+}")
+    public ResponseEntity<?> deleteFile(@PathVariable String filename){
+        logger.info("Deleting file");
+        fileStorageService.deleteFile(filename);
+        return ResponseEntity.noContent().build();
+    }
 
-        return ResponseEntity.ok().contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                .body(resource);
+    private String downloadUri(String filename){
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/file/v1/downloadFile/")
+                .path(filename)
+                .toUriString();
     }
 
 }
@@ -2,6 +2,9 @@ package br.com.xmetrocubo.controller;
 
 import br.com.xmetrocubo.data.vo.v1.PersonVO;
 import br.com.xmetrocubo.services.PersonServices;
+import br.com.xmetrocubo.util.CountMode;
+import br.com.xmetrocubo.util.ETags;
+import br.com.xmetrocubo.util.ExportFormat;
 import br.com.xmetrocubo.util.MediaType;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -9,14 +12,20 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
-import org.springframework.hateoas.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 //@CrossOrigin
 @RestController
@@ -43,12 +52,37 @@ public class PersonController {
                     @ApiResponse(description = "Not Found", responseCode = "404", content = @Content),
                     @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content)
             })
-    public ResponseEntity<PagedModel<EntityModel<PersonVO>>> finAdll(@RequestParam(value = "page", defaultValue = "0") Integer page,
+    public ResponseEntity<CollectionModel<EntityModel<PersonVO>>> finAdll(@RequestParam(value = "page", defaultValue = "0") Integer page,
                                                                     @RequestParam(value = "size", defaultValue = "12") Integer size,
-                                                                    @RequestParam(value = "direction", defaultValue = "asc") String direction) {
+                                                                    @RequestParam(value = "direction", defaultValue = "asc") String direction,
+                                                                    @RequestParam(value = "count", defaultValue = "exact") String count) {
         var sortDirection = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, "firstName"));
-        return ResponseEntity.ok(service.findAll(pageable));
+        return ResponseEntity.ok(service.findAll(pageable, CountMode.of(count)));
+    }
+
+    @GetMapping(value = "/cursor", produces = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_YML})
+    @Operation(summary = "Finds all People using a cursor",
+            description = "Finds all People ordered by first name, following the opaque cursors in the next and prev links",
+            tags = {"People"},
+            responses = {
+                    @ApiResponse(description = "Success", responseCode = "200",
+                            content = {
+                                    @Content(
+                                            mediaType = "application/json",
+                                            array = @ArraySchema(schema = @Schema(implementation = PersonVO.class))
+                                    )
+                            }),
+                    @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
+                    @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
+                    @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content)
+            })
+    public ResponseEntity<CollectionModel<EntityModel<PersonVO>>> findAllByCursor(@RequestParam(value = "after", required = false) String after,
+                                                                                  @RequestParam(value = "before", required = false) String before,
+                                                                                  @RequestParam(value = "size", defaultValue = "12") Integer size,
+                                                                                  @RequestParam(value = "direction", defaultValue = "asc") String direction) {
+        var sortDirection = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return ResponseEntity.ok(service.findAllByCursor(after, before, size, sortDirection));
     }
 
     @GetMapping(value = "/findPersonByName/{fisrtName}", produces = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_YML})
@@ -67,13 +101,37 @@ public class PersonController {
                     @ApiResponse(description = "Not Found", responseCode = "404", content = @Content),
                     @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content)
             })
-    public ResponseEntity<PagedModel<EntityModel<PersonVO>>> findPersonByName(@PathVariable(value = "fisrtName") String firstName,
+    public ResponseEntity<CollectionModel<EntityModel<PersonVO>>> findPersonByName(@PathVariable(value = "fisrtName") String firstName,
                                                                               @RequestParam(value = "page", defaultValue = "0") Integer page,
                                                                               @RequestParam(value = "size", defaultValue = "12") Integer size,
-                                                                              @RequestParam(value = "direction", defaultValue = "asc") String direction) {
+                                                                              @RequestParam(value = "direction", defaultValue = "asc") String direction,
+                                                                              @RequestParam(value = "count", defaultValue = "exact") String count) {
         var sortDirection = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, "firstName"));
-        return ResponseEntity.ok(service.findPersonByName(firstName, pageable));
+        return ResponseEntity.ok(service.findPersonByName(firstName, pageable, CountMode.of(count)));
+    }
+
+    @GetMapping(value = "/export",
+            produces = {MediaType.APPLICATION_NDJSON, MediaType.TEXT_CSV})
+    @Operation(summary = "Exports all People",
+            description = "Streams every Person in a single response, as NDJSON or as CSV when the Accept header asks for text/csv",
+            tags = {"People"},
+            responses = {
+                    @ApiResponse(description = "Success", responseCode = "200",
+                            content = {
+                                    @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = PersonVO.class)),
+                                    @Content(mediaType = "text/csv")
+                            }),
+                    @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
+                    @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content),
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> export(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        var format = ExportFormat.fromAccept(accept);
+        StreamingResponseBody body = out -> service.export(format, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, format.getMediaType())
+                .body(body);
     }
 
 //    @CrossOrigin(origins = "http://localhost:8080")
@@ -84,13 +142,17 @@ public class PersonController {
             responses = {
                     @ApiResponse(description = "Success", responseCode = "200", content = @Content(schema = @Schema(implementation = PersonVO.class))),
                     @ApiResponse(description = "No Content", responseCode = "204", content = @Content),
+                    @ApiResponse(description = "Not Modified", responseCode = "304", content = @Content),
                     @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
                     @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
                     @ApiResponse(description = "Not Found", responseCode = "404", content = @Content),
                     @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content)
             })
-    public PersonVO findById(@PathVariable(value = "id") Long id) {
-        return service.findById(id);
+    public PersonVO findById(@PathVariable(value = "id") Long id, NativeWebRequest request) {
+        var accept = request.getHeader(HttpHeaders.ACCEPT);
+        // The tag depends on the representation, so a cached copy is only valid for the same Accept
+        request.getNativeResponse(HttpServletResponse.class).addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return service.findById(id, version -> request.checkNotModified(ETags.of(version, accept)));
     }
 
 //    @CrossOrigin(origins = {"http://localhost:8080", "https://erudio.com.br"})
@@ -109,6 +171,44 @@ public class PersonController {
         return service.create(PersonVO);
     }
 
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_YML},
+            produces = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_YML})
+    @Operation(summary = "Adds many People",
+            description = "Adds many People at once by passing in a JSON, XML or YML array, persisted in JDBC batches",
+            tags = {"People"},
+            responses = {
+                    @ApiResponse(description = "Success", responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = PersonVO.class)))),
+                    @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
+                    @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
+                    @ApiResponse(description = "Payload Too Large", responseCode = "413", content = @Content),
+                    @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content)
+            })
+    public List<PersonVO> bulkCreate(@RequestBody List<PersonVO> people) {
+        return service.bulkCreate(people);
+    }
+
+    @PutMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_YML},
+            produces = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_YML})
+    @Operation(summary = "Updates many People",
+            description = "Updates many People at once by passing in a JSON, XML or YML array, persisted in JDBC batches; an item carrying a version is only applied while that version is current",
+            tags = {"People"},
+            responses = {
+                    @ApiResponse(description = "Updated", responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = PersonVO.class)))),
+                    @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
+                    @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content = @Content),
+                    @ApiResponse(description = "Precondition Failed", responseCode = "412", content = @Content),
+                    @ApiResponse(description = "Payload Too Large", responseCode = "413", content = @Content),
+                    @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content)
+            })
+    public List<PersonVO> bulkUpdate(@RequestBody List<PersonVO> people) {
+        return service.bulkUpdate(people);
+    }
+
     @PutMapping(consumes = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_YML},
             produces = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.APPLICATION_YML})
     @Operation(summary = "Updates a Person",
@@ -119,10 +219,14 @@ public class PersonController {
                     @ApiResponse(description = "Bad Request", responseCode = "400", content = @Content),
                     @ApiResponse(description = "Unauthorized", responseCode = "401", content = @Content),
                     @ApiResponse(description = "Not Found", responseCode = "404", content = @Content),
+                    @ApiResponse(description = "Precondition Failed", responseCode = "412", content = @Content),
                     @ApiResponse(description = "Internal Error", responseCode = "500", content = @Content)
             })
-    public PersonVO update(@RequestBody PersonVO PersonVO) {
-        return service.update(PersonVO);
+    public ResponseEntity<PersonVO> update(@RequestBody PersonVO PersonVO,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        var vo = service.update(PersonVO, ifMatch);
+        return ResponseEntity.ok().eTag(ETags.of(vo.getVersion(), accept)).varyBy(HttpHeaders.ACCEPT).body(vo);
     }
 
     @PatchMapping(value = "/{id}",
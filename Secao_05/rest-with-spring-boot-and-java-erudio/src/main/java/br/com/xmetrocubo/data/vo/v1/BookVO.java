@@ -8,7 +8,7 @@ import org.springframework.hateoas.RepresentationModel;
 import java.io.Serializable;
 import java.util.Date;
 
-@JsonPropertyOrder({"id", "author", "launchDate", "price", "title"})
+@JsonPropertyOrder({"id", "author", "launchDate", "price", "title", "version"})
 public class BookVO extends RepresentationModel<BookVO> implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -20,6 +20,8 @@ public class BookVO extends RepresentationModel<BookVO> implements Serializable
     private Date launchDate;
     private Double price;
     private String title;
+    // Same value as the ETag; a bulk update has no per-item If-Match, so its items send it in the body
+    private Long version;
 
     public BookVO() {}
 
@@ -63,6 +65,14 @@ public class BookVO extends RepresentationModel<BookVO> implements Serializable
         this.title = title;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
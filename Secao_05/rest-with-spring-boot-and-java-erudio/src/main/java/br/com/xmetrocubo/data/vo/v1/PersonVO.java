@@ -9,7 +9,7 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.util.Objects;
 
-@JsonPropertyOrder({"id", "firstName", "lastName", "address", "gender", "enabled"})
+@JsonPropertyOrder({"id", "firstName", "lastName", "address", "gender", "enabled", "version"})
 public class PersonVO extends RepresentationModel<PersonVO> implements Serializable {
 
     @Serial
@@ -23,6 +23,8 @@ public class PersonVO extends RepresentationModel<PersonVO> implements Serializa
     private String address;
     private String gender;
     private Boolean enabled;
+    // Same value as the ETag; a bulk update has no per-item If-Match, so its items send it in the body
+    private Long version;
 
     public PersonVO() {
     }
@@ -75,6 +77,14 @@ public class PersonVO extends RepresentationModel<PersonVO> implements Serializa
         this.enabled = enabled;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,79 @@
+package br.com.xmetrocubo.data.vo.v1;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+@JsonPropertyOrder({"fileName", "contentType", "size", "sha256", "createdAt"})
+public class StoredFileVO extends RepresentationModel<StoredFileVO> implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private String fileName;
+    private String contentType;
+    private Long size;
+    private String sha256;
+    private Date createdAt;
+
+    public StoredFileVO() {
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        StoredFileVO that = (StoredFileVO) o;
+        return Objects.equals(fileName, that.fileName) && Objects.equals(contentType, that.contentType) && Objects.equals(size, that.size) && Objects.equals(sha256, that.sha256) && Objects.equals(createdAt, that.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), fileName, contentType, size, sha256, createdAt);
+    }
+}
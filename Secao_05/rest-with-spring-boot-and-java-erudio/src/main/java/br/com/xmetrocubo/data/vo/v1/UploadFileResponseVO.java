@@ -12,6 +12,8 @@ public class UploadFileResponseVO implements Serializable {
     private String fileDownloadUri;
     private String fileType;
     private long size;
+    private String sha256;
+    private String error;
 
     public UploadFileResponseVO() {
     }
@@ -23,6 +25,11 @@ public class UploadFileResponseVO implements Serializable {
         this.size = size;
     }
 
+    public UploadFileResponseVO(String fileName, String fileDownloadUri, String fileType, long size, String sha256) {
+        this(fileName, fileDownloadUri, fileType, size);
+        this.sha256 = sha256;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -54,4 +61,20 @@ public class UploadFileResponseVO implements Serializable {
     public void setSize(long size) {
         this.size = size;
     }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
 }
@@ -0,0 +1,80 @@
+package br.com.xmetrocubo.data.vo.v1;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UploadSessionVO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+    private String fileName;
+    private String contentType;
+    private Long size;
+    private String sha256;
+    private Long received;
+    // Concrete type so the field stays serializable
+    private ArrayList<String> receivedRanges;
+
+    public UploadSessionVO() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public Long getReceived() {
+        return received;
+    }
+
+    public void setReceived(Long received) {
+        this.received = received;
+    }
+
+    public List<String> getReceivedRanges() {
+        return receivedRanges;
+    }
+
+    public void setReceivedRanges(List<String> receivedRanges) {
+        this.receivedRanges = receivedRanges == null ? null : new ArrayList<>(receivedRanges);
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.xmetrocubo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.Serial;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidUploadException extends RuntimeException{
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public InvalidUploadException(String ex) {
+        super(ex);
+    }
+}
@@ -1,9 +1,20 @@
 package br.com.xmetrocubo.exceptions.handler;
 
+import br.com.xmetrocubo.exceptions.ConflictException;
 import br.com.xmetrocubo.exceptions.ExceptionResponse;
+import br.com.xmetrocubo.exceptions.InvalidCursorException;
 import br.com.xmetrocubo.exceptions.InvalidJwtAuthenticationException;
+import br.com.xmetrocubo.exceptions.InvalidParameterException;
+import br.com.xmetrocubo.exceptions.InvalidUploadException;
+import br.com.xmetrocubo.exceptions.MyFileNotFoundException;
+import br.com.xmetrocubo.exceptions.PayloadTooLargeException;
+import br.com.xmetrocubo.exceptions.PreconditionFailedException;
 import br.com.xmetrocubo.exceptions.RequiredObjectIsNullException;
 import br.com.xmetrocubo.exceptions.ResourceNotFoundException;
+import br.com.xmetrocubo.exceptions.ServiceUnavailableException;
+import br.com.xmetrocubo.exceptions.TooManyRequestsException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -24,18 +35,49 @@ public class CustomizeResponseEntityExceptionHandler extends ResponseEntityExcep
         return new ResponseEntity<>(exceptionResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
-    @ExceptionHandler(ResourceNotFoundException.class)
+    @ExceptionHandler({ResourceNotFoundException.class, MyFileNotFoundException.class})
     public final ResponseEntity<ExceptionResponse> handleNotFOunExceptions(Exception ex, WebRequest request){
         ExceptionResponse exceptionResponse = new ExceptionResponse(new Date(), ex.getMessage(), request.getDescription(false));
         return new ResponseEntity<>(exceptionResponse, HttpStatus.NOT_FOUND);
     }
 
-    @ExceptionHandler(RequiredObjectIsNullException.class)
+    @ExceptionHandler({RequiredObjectIsNullException.class, InvalidCursorException.class, InvalidParameterException.class, InvalidUploadException.class})
     public final ResponseEntity<ExceptionResponse> handleBadRequestExceptions(Exception ex, WebRequest request){
         ExceptionResponse exceptionResponse = new ExceptionResponse(new Date(), ex.getMessage(), request.getDescription(false));
         return new ResponseEntity<>(exceptionResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public final ResponseEntity<ExceptionResponse> handleConflictExceptions(Exception ex, WebRequest request){
+        ExceptionResponse exceptionResponse = new ExceptionResponse(new Date(), ex.getMessage(), request.getDescription(false));
+        return new ResponseEntity<>(exceptionResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler({PreconditionFailedException.class, OptimisticLockingFailureException.class})
+    public final ResponseEntity<ExceptionResponse> handlePreconditionFailedExceptions(Exception ex, WebRequest request){
+        ExceptionResponse exceptionResponse = new ExceptionResponse(new Date(), ex.getMessage(), request.getDescription(false));
+        return new ResponseEntity<>(exceptionResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public final ResponseEntity<ExceptionResponse> handlePayloadTooLargeExceptions(Exception ex, WebRequest request){
+        ExceptionResponse exceptionResponse = new ExceptionResponse(new Date(), ex.getMessage(), request.getDescription(false));
+        return new ResponseEntity<>(exceptionResponse, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public final ResponseEntity<ExceptionResponse> handleTooManyRequestsExceptions(TooManyRequestsException ex, WebRequest request){
+        ExceptionResponse exceptionResponse = new ExceptionResponse(new Date(), ex.getMessage(), request.getDescription(false));
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds())).body(exceptionResponse);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public final ResponseEntity<ExceptionResponse> handleServiceUnavailableExceptions(Exception ex, WebRequest request){
+        ExceptionResponse exceptionResponse = new ExceptionResponse(new Date(), ex.getMessage(), request.getDescription(false));
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(exceptionResponse);
+    }
+
     @ExceptionHandler(InvalidJwtAuthenticationException.class)
     public final ResponseEntity<ExceptionResponse> handleInvalidJwtAuthenticationExceptions(Exception ex, WebRequest request){
         ExceptionResponse exceptionResponse = new ExceptionResponse(new Date(), ex.getMessage(), request.getDescription(false));
@@ -0,0 +1,25 @@
+package br.com.xmetrocubo.hateoas;
+
+import org.springframework.hateoas.Link;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+// Resolves the controller base URI once and appends the id per item, producing the same href as
+// linkTo(methodOn(controller).findById(id)) without a recording proxy and a request URI lookup per element
+public final class ItemLinks {
+
+    private final String prefix;
+
+    private ItemLinks(String prefix) {
+        this.prefix = prefix;
+    }
+
+    // The base URI depends on the current request (host, forwarded headers), so resolve it per request, not per deployment
+    public static ItemLinks of(Class<?> controller) {
+        return new ItemLinks(linkTo(controller).withSelfRel().getHref() + "/");
+    }
+
+    public Link self(Object id) {
+        return Link.of(prefix + id);
+    }
+}
@@ -0,0 +1,83 @@
+package br.com.xmetrocubo.hateoas;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.Link;
+
+import java.util.Collection;
+import java.util.Objects;
+
+// Same shape as PagedModel, but the metadata only says whether there is a next page, so no total has to be counted
+public class SlicedModel<T> extends CollectionModel<T> {
+
+    private final SliceMetadata metadata;
+
+    protected SlicedModel(Collection<T> content, SliceMetadata metadata, Iterable<Link> links) {
+        super(content, links, null);
+        this.metadata = metadata;
+    }
+
+    public static <T> SlicedModel<T> of(Collection<T> content, SliceMetadata metadata, Iterable<Link> links) {
+        return new SlicedModel<>(content, metadata, links);
+    }
+
+    @JsonProperty("slice")
+    public SliceMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        SlicedModel<?> that = (SlicedModel<?>) o;
+        return Objects.equals(metadata, that.metadata);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), metadata);
+    }
+
+    public static class SliceMetadata {
+
+        @JsonProperty
+        private final long size;
+        @JsonProperty
+        private final long number;
+        @JsonProperty
+        private final boolean hasNext;
+
+        public SliceMetadata(long size, long number, boolean hasNext) {
+            this.size = size;
+            this.number = number;
+            this.hasNext = hasNext;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        public boolean isHasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SliceMetadata that = (SliceMetadata) o;
+            return size == that.size && number == that.number && hasNext == that.hasNext;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, number, hasNext);
+        }
+    }
+}
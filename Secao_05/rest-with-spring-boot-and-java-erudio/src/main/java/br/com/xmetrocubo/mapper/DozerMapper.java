@@ -1,25 +1,65 @@
 package br.com.xmetrocubo.mapper;
 
+import br.com.xmetrocubo.data.vo.v1.BookVO;
+import br.com.xmetrocubo.data.vo.v1.PersonVO;
+import br.com.xmetrocubo.mapper.custom.BookMapper;
+import br.com.xmetrocubo.mapper.custom.PersonMapper;
+import br.com.xmetrocubo.model.Book;
+import br.com.xmetrocubo.model.Person;
 import com.github.dozermapper.core.DozerBeanMapperBuilder;
 import com.github.dozermapper.core.Mapper;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 public class DozerMapper {
 
     private static Mapper mapper = DozerBeanMapperBuilder.buildDefault();
 
+    // Hand-written conversions for the pairs on the request path, Dozer stays as fallback for everything else
+    private static final Map<Class<?>, Map<Class<?>, Function<Object, Object>>> converters = new HashMap<>();
+
+    static {
+        register(Person.class, PersonVO.class, PersonMapper::toVO);
+        register(PersonVO.class, Person.class, PersonMapper::toEntity);
+        register(Book.class, BookVO.class, BookMapper::toVO);
+        register(BookVO.class, Book.class, BookMapper::toEntity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <O, D> void register(Class<O> origin, Class<D> destination, Function<O, D> converter) {
+        converters.computeIfAbsent(origin, k -> new HashMap<>())
+                .put(destination, (Function<Object, Object>) converter);
+    }
+
     public static <O, D> D parseObject(O origin, Class<D> destination){
-        return mapper.map(origin, destination);
+        return converterFor(origin.getClass(), destination).apply(origin);
     }
 
     public static <O, D> List<D> parseListObjects(List<O> origin, Class<D> destination){
-        List<D> destinationObjects = new ArrayList<>();
+        List<D> destinationObjects = new ArrayList<>(origin.size());
+        if (origin.isEmpty()) {
+            return destinationObjects;
+        }
+        Class<?> originClass = origin.get(0).getClass();
+        Function<Object, D> converter = converterFor(originClass, destination);
         for (O o: origin) {
-            destinationObjects.add(mapper.map(o, destination));
+            destinationObjects.add(o.getClass() == originClass ? converter.apply(o) : parseObject(o, destination));
         }
         return destinationObjects;
     }
 
+    @SuppressWarnings("unchecked")
+    private static <D> Function<Object, D> converterFor(Class<?> originClass, Class<D> destination) {
+        Map<Class<?>, Function<Object, Object>> byDestination = converters.get(originClass);
+        Function<Object, Object> converter = byDestination == null ? null : byDestination.get(destination);
+        if (converter != null) {
+            return (Function<Object, D>) converter;
+        }
+        return o -> mapper.map(o, destination);
+    }
+
 }
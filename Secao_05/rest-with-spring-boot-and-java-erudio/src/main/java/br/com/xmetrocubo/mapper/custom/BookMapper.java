@@ -0,0 +1,39 @@
+package br.com.xmetrocubo.mapper.custom;
+
+import br.com.xmetrocubo.data.vo.v1.BookVO;
+import br.com.xmetrocubo.model.Book;
+
+import java.util.Date;
+
+public class BookMapper {
+
+    private BookMapper() {
+    }
+
+    public static BookVO toVO(Book book) {
+        BookVO vo = new BookVO();
+        vo.setKey(book.getId());
+        vo.setAuthor(book.getAuthor());
+        vo.setLaunchDate(copyOf(book.getLaunchDate()));
+        vo.setPrice(book.getPrice());
+        vo.setTitle(book.getTitle());
+        vo.setVersion(book.getVersion());
+        return vo;
+    }
+
+    public static Book toEntity(BookVO vo) {
+        Book entity = new Book();
+        entity.setId(vo.getKey());
+        entity.setAuthor(vo.getAuthor());
+        entity.setLaunchDate(copyOf(vo.getLaunchDate()));
+        entity.setPrice(vo.getPrice());
+        entity.setTitle(vo.getTitle());
+        entity.setVersion(vo.getVersion());
+        return entity;
+    }
+
+    // Date is mutable, so it is copied just like Dozer did
+    private static Date copyOf(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.xmetrocubo.mapper.custom;
+
+import br.com.xmetrocubo.data.vo.v1.PersonVO;
+import br.com.xmetrocubo.model.Person;
+
+public class PersonMapper {
+
+    private PersonMapper() {
+    }
+
+    public static PersonVO toVO(Person person) {
+        PersonVO vo = new PersonVO();
+        vo.setKey(person.getId());
+        vo.setFirstName(person.getFirstName());
+        vo.setLastName(person.getLastName());
+        vo.setAddress(person.getAddress());
+        vo.setGender(person.getGender());
+        vo.setEnabled(person.getEnabled());
+        vo.setVersion(person.getVersion());
+        return vo;
+    }
+
+    public static Person toEntity(PersonVO vo) {
+        Person entity = new Person();
+        entity.setId(vo.getKey());
+        entity.setFirstName(vo.getFirstName());
+        entity.setLastName(vo.getLastName());
+        entity.setAddress(vo.getAddress());
+        entity.setGender(vo.getGender());
+        entity.setEnabled(vo.getEnabled());
+        entity.setVersion(vo.getVersion());
+        return entity;
+    }
+}
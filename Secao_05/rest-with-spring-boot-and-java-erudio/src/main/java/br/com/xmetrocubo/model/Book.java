@@ -1,6 +1,8 @@
 package br.com.xmetrocubo.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -9,12 +11,16 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "books")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
 public class Book implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    // Same pooled strategy as Person, so bulk inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 180)
@@ -30,6 +36,10 @@ public class Book implements Serializable {
     @Column(nullable = false, length = 250)
     private String title;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public Book() {
     }
 
@@ -73,6 +83,14 @@ public class Book implements Serializable {
         this.title = title;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,84 @@
+package br.com.xmetrocubo.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+// One row per distinct content on disk, however many file names point to it
+@Entity
+@Table(name = "file_blob")
+public class FileBlob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    public FileBlob() {
+    }
+
+    public FileBlob(String sha256, Long size) {
+        this.sha256 = sha256;
+        this.size = size;
+        this.refCount = 1;
+        this.createdAt = new Date();
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileBlob fileBlob = (FileBlob) o;
+        return Objects.equals(sha256, fileBlob.sha256) && Objects.equals(size, fileBlob.size) && Objects.equals(refCount, fileBlob.refCount) && Objects.equals(createdAt, fileBlob.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sha256, size, refCount, createdAt);
+    }
+}
@@ -1,6 +1,8 @@
 package br.com.xmetrocubo.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 
 import java.io.Serial;
@@ -9,6 +11,8 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "permission")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "permission")
 public class Permission implements GrantedAuthority, Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -1,6 +1,8 @@
 package br.com.xmetrocubo.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -8,12 +10,16 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "person")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person")
 public class Person implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    // Pooled ids from the person_seq table: IDENTITY would force Hibernate to insert row by row to read each key back
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_seq")
+    @SequenceGenerator(name = "person_seq", sequenceName = "person_seq", allocationSize = 50)
     private Long id;
     @Column(name = "first_name", nullable = false, length = 80)
     private String firstName;
@@ -25,6 +31,9 @@ public class Person implements Serializable {
     private String gender;
     @Column(nullable = false)
     private Boolean enabled;
+    @Version
+    @Column(nullable = false)
+    private Long version;
 
     public Person() {
     }
@@ -76,6 +85,14 @@ public class Person implements Serializable {
     public void setEnabled(Boolean enabled) {
         this.enabled = enabled;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,93 @@
+package br.com.xmetrocubo.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+// A refresh token that was used or revoked, kept until it would have expired anyway.
+// The id is assigned, so without isNew every save would be a merge that selects the row before inserting it
+@Entity
+@Table(name = "revoked_refresh_token")
+public class RevokedRefreshToken implements Persistable<String>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    @Column(name = "user_name", nullable = false)
+    private String userName;
+
+    @Column(name = "expires_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date expiresAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    public RevokedRefreshToken() {
+    }
+
+    public RevokedRefreshToken(String jti, String userName, Date expiresAt) {
+        this.jti = jti;
+        this.userName = userName;
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public String getId() {
+        return jti;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Date expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RevokedRefreshToken that = (RevokedRefreshToken) o;
+        return Objects.equals(jti, that.jti) && Objects.equals(userName, that.userName) && Objects.equals(expiresAt, that.expiresAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(jti, userName, expiresAt);
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.xmetrocubo.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+// The name a file was uploaded under, pointing at the blob that holds its content.
+// Cached, so a download resolves its headers and blob without touching the database or the disk
+@Entity
+@Table(name = "stored_file")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "stored-file")
+public class StoredFile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "created_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    public StoredFile() {
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StoredFile that = (StoredFile) o;
+        return Objects.equals(fileName, that.fileName) && Objects.equals(sha256, that.sha256) && Objects.equals(contentType, that.contentType) && Objects.equals(size, that.size) && Objects.equals(createdAt, that.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileName, sha256, contentType, size, createdAt);
+    }
+}
@@ -1,6 +1,8 @@
 package br.com.xmetrocubo.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -13,6 +15,8 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
 public class User implements UserDetails, Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -33,6 +37,7 @@ public class User implements UserDetails, Serializable {
     private Boolean credentialsNonExpired;
     private Boolean enabled;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-permissions")
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(name = "user_permission", joinColumns = {@JoinColumn (name = "id_user")},
             inverseJoinColumns = {@JoinColumn (name = "id_permission")})
@@ -1,9 +1,43 @@
 package br.com.xmetrocubo.repositories;
 
 import br.com.xmetrocubo.model.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {}
\ No newline at end of file
+public interface BookRepository extends JpaRepository<Book, Long> {
+
+    // Slices fetch one extra row to know if there is a next page instead of running a count query
+    @Query("SELECT b FROM Book b")
+    Slice<Book> findAllSliced(Pageable pageable);
+
+    // MySQL Connector/J only streams rows one at a time with this fetch size, otherwise the whole result is buffered.
+    // The export bypasses the second-level cache, putting every row in it would evict the hot entries
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")})
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAll();
+
+    // Keyset pagination over (title, id): the pageable only carries the limit and the sort, no count is issued
+    @Query("SELECT b FROM Book b")
+    List<Book> findKeysetFirstPage(Pageable pageable);
+
+    @Query("SELECT b FROM Book b WHERE b.title > :title OR (b.title = :title AND b.id > :id)")
+    List<Book> findKeysetAfter(@Param("title") String title, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT b FROM Book b WHERE b.title < :title OR (b.title = :title AND b.id < :id)")
+    List<Book> findKeysetBefore(@Param("title") String title, @Param("id") Long id, Pageable pageable);
+
+}
@@ -0,0 +1,31 @@
+package br.com.xmetrocubo.repositories;
+
+import br.com.xmetrocubo.model.FileBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount + 1 WHERE b.sha256 = :sha256")
+    int incrementRefCount(@Param("sha256") String sha256);
+
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount - 1 WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int decrementRefCount(@Param("sha256") String sha256);
+
+    @Query("SELECT b.sha256 FROM FileBlob b WHERE b.refCount = 0")
+    List<String> findUnreferenced(Pageable pageable);
+
+    // Re-checks the count, a new upload may have picked the blob up again since it was listed
+    @Modifying
+    @Query("DELETE FROM FileBlob b WHERE b.sha256 = :sha256 AND b.refCount = 0")
+    int deleteIfUnreferenced(@Param("sha256") String sha256);
+}
@@ -1,14 +1,21 @@
 package br.com.xmetrocubo.repositories;
 
 import br.com.xmetrocubo.model.Person;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface PersonRepository extends JpaRepository<Person, Long> {
 
@@ -16,7 +23,48 @@ public interface PersonRepository extends JpaRepository<Person, Long> {
     @Query("UPDATE Person p SET p.enabled = false WHERE p.id = :id")
     void disablePerson(@Param("id") Long id);
 
-    @Query("SELECT p FROM Person p WHERE LOWER(p.firstName) LIKE LOWER(CONCAT('%',:firstName, '%'))")
+    @Query("SELECT p FROM Person p WHERE (LOWER(p.firstName) LIKE LOWER(CONCAT('%',:firstName, '%')) OR LOWER(p.lastName) LIKE LOWER(CONCAT('%',:firstName, '%')))")
     Page<Person> findPersonByName(@Param("firstName") String firstName, Pageable pageable);
 
+    @Query("SELECT p FROM Person p WHERE (LOWER(p.firstName) LIKE LOWER(CONCAT('%',:firstName, '%')) OR LOWER(p.lastName) LIKE LOWER(CONCAT('%',:firstName, '%')))")
+    Slice<Person> findPersonSliceByName(@Param("firstName") String firstName, Pageable pageable);
+
+    @Query("SELECT COUNT(p) FROM Person p WHERE (LOWER(p.firstName) LIKE LOWER(CONCAT('%',:firstName, '%')) OR LOWER(p.lastName) LIKE LOWER(CONCAT('%',:firstName, '%')))")
+    long countPersonByName(@Param("firstName") String firstName);
+
+    // The ngram FULLTEXT index narrows the candidates, the LIKE recheck keeps the exact contains semantics
+    String NAME_SEARCH = "FROM person p WHERE MATCH(p.first_name, p.last_name) AGAINST (:term IN BOOLEAN MODE) " +
+            "AND (LOWER(p.first_name) LIKE LOWER(CONCAT('%', :name, '%')) OR LOWER(p.last_name) LIKE LOWER(CONCAT('%', :name, '%')))";
+
+    @Query(value = "SELECT p.* " + NAME_SEARCH, countQuery = "SELECT COUNT(*) " + NAME_SEARCH, nativeQuery = true)
+    Page<Person> searchPersonByName(@Param("term") String term, @Param("name") String name, Pageable pageable);
+
+    @Query(value = "SELECT p.* " + NAME_SEARCH, nativeQuery = true)
+    Slice<Person> searchPersonSliceByName(@Param("term") String term, @Param("name") String name, Pageable pageable);
+
+    @Query(value = "SELECT COUNT(*) " + NAME_SEARCH, nativeQuery = true)
+    long countSearchPersonByName(@Param("term") String term, @Param("name") String name);
+
+    // Slices fetch one extra row to know if there is a next page instead of running a count query
+    @Query("SELECT p FROM Person p")
+    Slice<Person> findAllSliced(Pageable pageable);
+
+    // MySQL Connector/J only streams rows one at a time with this fetch size, otherwise the whole result is buffered.
+    // The export bypasses the second-level cache, putting every row in it would evict the hot entries
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")})
+    @Query("SELECT p FROM Person p ORDER BY p.id")
+    Stream<Person> streamAll();
+
+    // Keyset pagination over (firstName, id): the pageable only carries the limit and the sort, no count is issued
+    @Query("SELECT p FROM Person p")
+    List<Person> findKeysetFirstPage(Pageable pageable);
+
+    @Query("SELECT p FROM Person p WHERE p.firstName > :firstName OR (p.firstName = :firstName AND p.id > :id)")
+    List<Person> findKeysetAfter(@Param("firstName") String firstName, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Person p WHERE p.firstName < :firstName OR (p.firstName = :firstName AND p.id < :id)")
+    List<Person> findKeysetBefore(@Param("firstName") String firstName, @Param("id") Long id, Pageable pageable);
+
 }
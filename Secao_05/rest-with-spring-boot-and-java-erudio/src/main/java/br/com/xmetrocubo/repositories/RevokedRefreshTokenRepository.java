@@ -0,0 +1,22 @@
+package br.com.xmetrocubo.repositories;
+
+import br.com.xmetrocubo.model.RevokedRefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface RevokedRefreshTokenRepository extends JpaRepository<RevokedRefreshToken, String> {
+
+    @Query("SELECT r FROM RevokedRefreshToken r WHERE r.expiresAt > :now")
+    List<RevokedRefreshToken> findUnexpired(@Param("now") Date now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedRefreshToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Date now);
+}
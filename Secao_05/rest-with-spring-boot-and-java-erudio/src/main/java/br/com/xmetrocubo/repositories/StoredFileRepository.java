@@ -0,0 +1,10 @@
+package br.com.xmetrocubo.repositories;
+
+import br.com.xmetrocubo.model.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+
+}
@@ -0,0 +1,70 @@
+package br.com.xmetrocubo.security;
+
+import br.com.xmetrocubo.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Throttles the authentication endpoints before any password is hashed or any user is looked up:
+// per client address against one host trying many accounts, per username against many hosts trying one account
+@Component
+public class LoginRateLimiter {
+
+    @Value("${security.rate-limit.slots:16384}")
+    private int slots = 16384;
+
+    @Value("${security.rate-limit.ip.capacity:50}")
+    private double ipCapacity = 50;
+
+    @Value("${security.rate-limit.ip.refill-per-minute:50}")
+    private double ipRefillPerMinute = 50;
+
+    @Value("${security.rate-limit.username.capacity:10}")
+    private double usernameCapacity = 10;
+
+    @Value("${security.rate-limit.username.refill-per-minute:10}")
+    private double usernameRefillPerMinute = 10;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private TokenBuckets byIp;
+    private TokenBuckets byUsername;
+
+    @PostConstruct
+    protected void init(){
+        byIp = new TokenBuckets(slots, ipCapacity, ipRefillPerMinute, System::nanoTime);
+        byUsername = new TokenBuckets(slots, usernameCapacity, usernameRefillPerMinute, System::nanoTime);
+    }
+
+    // Behind a proxy the client address is only right with server.forward-headers-strategy set
+    public void check(String endpoint, String username, String clientAddress){
+        long wait = byIp.tryAcquire(clientAddress);
+        if (wait > 0) reject(endpoint, "ip", wait);
+
+        wait = byUsername.tryAcquire(username.toLowerCase(Locale.ROOT));
+        if (wait > 0) {
+            byIp.release(clientAddress);
+            reject(endpoint, "username", wait);
+        }
+    }
+
+    private void reject(String endpoint, String limit, long waitNanos){
+        if (meterRegistry != null){
+            Counter.builder("auth.rate_limit.rejections")
+                    .description("Authentication requests turned away by the rate limiter")
+                    .tag("endpoint", endpoint)
+                    .tag("limit", limit)
+                    .register(meterRegistry)
+                    .increment();
+        }
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        throw new TooManyRequestsException("Too many authentication attempts, please try again later!", retryAfter);
+    }
+}
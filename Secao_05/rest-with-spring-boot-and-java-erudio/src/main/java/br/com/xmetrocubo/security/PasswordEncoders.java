@@ -0,0 +1,78 @@
+package br.com.xmetrocubo.security;
+
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// New hashes are stored as {pbkdf2-<iterations>}..., so raising the work factor only changes how new hashes are made:
+// older ones keep matching and DelegatingPasswordEncoder flags them for rehashing on the next successful sign-in
+public final class PasswordEncoders {
+
+    private static final String ID_PREFIX = "{pbkdf2-";
+
+    // The seeded users and everything encoded before the work factor was configurable: no prefix, or {pbkdf2}
+    private static final String LEGACY_ID = "pbkdf2";
+
+    private PasswordEncoders() {
+    }
+
+    public static PasswordEncoder create(int iterations){
+        String idForEncode = LEGACY_ID + "-" + iterations;
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(idForEncode, pbkdf2(iterations));
+        encoders.put(LEGACY_ID, legacy());
+        var passwordEncoder = new DelegatingPasswordEncoder(idForEncode, encoders);
+        passwordEncoder.setDefaultPasswordEncoderForMatches(new PreviousWorkFactors(passwordEncoder));
+        return passwordEncoder;
+    }
+
+    public static Pbkdf2PasswordEncoder pbkdf2(int iterations){
+        var encoder = new Pbkdf2PasswordEncoder("", 16, iterations, 256);
+        encoder.setAlgorithm(Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+        return encoder;
+    }
+
+    // What new Pbkdf2PasswordEncoder() used to produce
+    public static Pbkdf2PasswordEncoder legacy(){
+        return new Pbkdf2PasswordEncoder("", 8, 185000, 256);
+    }
+
+    // Gets every hash whose id the delegating encoder does not know: unprefixed legacy ones and earlier work factors.
+    // Anything it is asked to encode is hashed like a new password, at the current work factor
+    private static class PreviousWorkFactors implements PasswordEncoder {
+
+        private final PasswordEncoder current;
+        private final PasswordEncoder legacy = legacy();
+        private final Map<Integer, PasswordEncoder> byIterations = new ConcurrentHashMap<>();
+
+        PreviousWorkFactors(PasswordEncoder current) {
+            this.current = current;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return current.encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String prefixEncodedPassword) {
+            if (prefixEncodedPassword == null) return false;
+            if (!prefixEncodedPassword.startsWith("{")) return legacy.matches(rawPassword, prefixEncodedPassword);
+            int end = prefixEncodedPassword.indexOf('}');
+            if (!prefixEncodedPassword.startsWith(ID_PREFIX) || end < 0) return false;
+            int iterations;
+            try {
+                iterations = Integer.parseInt(prefixEncodedPassword.substring(ID_PREFIX.length(), end));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (iterations <= 0) return false;
+            return byIterations.computeIfAbsent(iterations, PasswordEncoders::pbkdf2)
+                    .matches(rawPassword, prefixEncodedPassword.substring(end + 1));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package br.com.xmetrocubo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Token buckets in a fixed table, whatever the number of keys: each key hashes to one bucket in each of two rows,
+// count-min style, and is only let through when both have a token. A collision can make a key stricter, never looser
+public final class TokenBuckets {
+
+    private static final int ROWS = 2;
+
+    private final int slots;
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier clock;
+
+    // Seeded per instance so nobody can pick keys that collide with someone else's buckets on purpose
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    private final double[] tokens;
+    private final long[] updatedAt;
+    private final ReentrantLock[] locks = new ReentrantLock[64];
+
+    public TokenBuckets(int slots, double capacity, double tokensPerMinute, LongSupplier clock) {
+        if (slots <= 0 || capacity < 1 || tokensPerMinute <= 0) {
+            throw new IllegalArgumentException("Token buckets need slots, a capacity of at least one token and a refill rate");
+        }
+        this.slots = slots;
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerMinute / 60_000_000_000d;
+        this.clock = clock;
+        this.tokens = new double[ROWS * slots];
+        this.updatedAt = new long[ROWS * slots];
+        Arrays.fill(tokens, capacity);
+        Arrays.fill(updatedAt, clock.getAsLong());
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // Takes a token for the key, or returns how many nanoseconds to wait for the next one without taking anything
+    public long tryAcquire(String key){
+        long hash = hash(key);
+        int first = Math.floorMod((int) hash, slots);
+        int second = slots + Math.floorMod((int) (hash >>> 32), slots);
+        long wait = tryAcquire(first);
+        if (wait > 0) return wait;
+        wait = tryAcquire(second);
+        if (wait > 0) release(first);
+        return wait;
+    }
+
+    // Gives back a token taken by a request that another limit turned away
+    public void release(String key){
+        long hash = hash(key);
+        release(Math.floorMod((int) hash, slots));
+        release(slots + Math.floorMod((int) (hash >>> 32), slots));
+    }
+
+    private long tryAcquire(int index){
+        ReentrantLock lock = locks[index % locks.length];
+        lock.lock();
+        try {
+            double available = refill(index);
+            if (available >= 1) {
+                tokens[index] = available - 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - available) / tokensPerNano));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(int index){
+        ReentrantLock lock = locks[index % locks.length];
+        lock.lock();
+        try {
+            tokens[index] = Math.min(capacity, refill(index) + 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double refill(int index){
+        long now = clock.getAsLong();
+        long elapsed = now - updatedAt[index];
+        if (elapsed > 0) {
+            tokens[index] = Math.min(capacity, tokens[index] + elapsed * tokensPerNano);
+            updatedAt[index] = now;
+        }
+        return tokens[index];
+    }
+
+    // FNV-1a over the UTF-8 bytes from a random offset, finished with the SplitMix64 mixer
+    private long hash(String key){
+        long h = seed;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
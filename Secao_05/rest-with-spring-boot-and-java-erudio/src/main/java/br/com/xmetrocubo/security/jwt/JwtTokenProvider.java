@@ -12,14 +12,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class JwtTokenProvider {
@@ -30,42 +35,106 @@ public class JwtTokenProvider {
     @Value("${security.jwt.token.expire-length:3600000}")
     private long validityInMilliseconds = 3600000;
 
+    @Value("${security.jwt.token.stateless:false}")
+    private boolean stateless = false;
+
+    @Value("${security.jwt.token.stateless-expire-length:300000}")
+    private long statelessValidityInMilliseconds = 300000;
+
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @Autowired
+    private RevokedUsers revokedUsers;
+
+    @Autowired
+    private RevokedRefreshTokens revokedRefreshTokens;
+
+    // The standard iat claim only has second precision
+    private static final String ISSUED_AT_MILLIS = "iat_ms";
+
     Algorithm algorithm = null;
 
+    private JWTVerifier verifier = null;
+
     @PostConstruct
     protected void init(){
          secretKey = Base64.getEncoder().encodeToString(secretKey.getBytes());
          algorithm = Algorithm.HMAC256(secretKey.getBytes());
+         verifier = JWT.require(algorithm).build();
     }
 
     public TokenVO createAccessToken(String userName, List<String> roles){
         Date now = new Date();
-        Date validity = new Date(now.getTime() + validityInMilliseconds);
+        Date validity = new Date(now.getTime() + (stateless ? statelessValidityInMilliseconds : validityInMilliseconds));
         var accessToken = getAccessToken(userName, roles, now, validity);
-        var refreshToken = getRefreshToken(userName, roles, now);
+        var refreshToken = getRefreshToken(userName, now);
         return new TokenVO(userName, true, now, validity, accessToken, refreshToken);
     }
 
-    public TokenVO refreshToken(String refreshToken){
+    // Rotation: every refresh token works once. It is revoked as it is exchanged for a new pair, and seeing it
+    // again means it leaked, so everything issued to its user so far is revoked with it
+    public TokenVO refreshToken(String refreshToken, UserDetails user){
         if (refreshToken.contains("Bearer ")){
-            refreshToken = refreshToken.substring("Bearer ".length());
-            JWTVerifier verifier = JWT.require(algorithm).build();
-            DecodedJWT decodedJWT = verifier.verify(refreshToken);
+            DecodedJWT decodedJWT = decodedRefreshToken(refreshToken);
             String username = decodedJWT.getSubject();
-            List<String> roles = decodedJWT.getClaim("roles").asList(String.class);
+            // The subject is the name as typed at sign-in, user_name is compared case-insensitively by MySQL
+            if (!user.getUsername().equalsIgnoreCase(username)){
+                throw new InvalidJwtAuthenticationException("Refresh token was not issued to this user!");
+            }
+            if (!user.isEnabled() || !user.isAccountNonLocked()){
+                throw new InvalidJwtAuthenticationException("User is disabled or locked!");
+            }
+            UUID jti = jti(decodedJWT);
+            // The filter answers almost every fresh token on its own; revoke settles requests racing with the same one
+            if (revokedRefreshTokens.isRevoked(jti) || !revokedRefreshTokens.revoke(jti, username, decodedJWT.getExpiresAt())){
+                revokedUsers.revoke(username);
+                throw new InvalidJwtAuthenticationException("Refresh token was already used, all sessions of the user were revoked!");
+            }
+            // Roles come from the current user, not from the old token
+            List<String> roles = new ArrayList<>();
+            for (GrantedAuthority authority : user.getAuthorities()) {
+                roles.add(authority.getAuthority());
+            }
             return createAccessToken(username, roles);
         }
         return null;
     }
 
+    // Sign-out: the refresh token can no longer be exchanged, access tokens run out on their own
+    public void revokeRefreshToken(String refreshToken){
+        if (refreshToken.contains("Bearer ")){
+            DecodedJWT decodedJWT = decodedRefreshToken(refreshToken);
+            revokedRefreshTokens.revoke(jti(decodedJWT), decodedJWT.getSubject(), decodedJWT.getExpiresAt());
+        }
+    }
+
+    private DecodedJWT decodedRefreshToken(String refreshToken){
+        DecodedJWT decodedJWT = verifier.verify(refreshToken.substring("Bearer ".length()));
+        if (revokedUsers.isRevoked(decodedJWT.getSubject(), issuedAt(decodedJWT))){
+            throw new InvalidJwtAuthenticationException("Revoked JWT token!");
+        }
+        return decodedJWT;
+    }
+
+    // Only refresh tokens carry a jti, so an access token cannot be used as one
+    private static UUID jti(DecodedJWT decodedJWT){
+        try {
+            return UUID.fromString(decodedJWT.getId());
+        } catch (RuntimeException e){
+            throw new InvalidJwtAuthenticationException("Not a refresh token!");
+        }
+    }
+
     private String getAccessToken(String userName, List<String> roles, Date now, Date validity) {
         String issuerUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
         return JWT.create()
                 .withClaim("roles", roles)
                 .withIssuedAt(now)
+                .withClaim(ISSUED_AT_MILLIS, now.getTime())
                 .withExpiresAt(validity)
                 .withSubject(userName)
                 .withIssuer(issuerUrl)
@@ -73,11 +142,13 @@ public class JwtTokenProvider {
                 .strip();
     }
 
-    private String getRefreshToken(String userName, List<String> roles, Date now) {
+    // No roles: the refresh path reads them from the current user, and the token must not grant anything itself
+    private String getRefreshToken(String userName, Date now) {
         Date validityRefreshToken = new Date(now.getTime() + validityInMilliseconds * 3);
         return JWT.create()
-                .withClaim("roles", roles)
+                .withJWTId(UUID.randomUUID().toString())
                 .withIssuedAt(now)
+                .withClaim(ISSUED_AT_MILLIS, now.getTime())
                 .withExpiresAt(validityRefreshToken)
                 .withSubject(userName)
                 .sign(algorithm)
@@ -86,15 +157,42 @@ public class JwtTokenProvider {
 
     public Authentication getAuthentication(String token){
         DecodedJWT decodedJWT = decodedToken(token);
+        // Refresh tokens are signed with the same key but only open /auth/refresh, otherwise a revoked or
+        // rotated one would keep authenticating API calls for its whole lifetime
+        if (decodedJWT.getId() != null){
+            return null;
+        }
+        if (revokedUsers.isRevoked(decodedJWT.getSubject(), issuedAt(decodedJWT))){
+            return null;
+        }
+        if (stateless){
+            return getAuthenticationFromClaims(decodedJWT);
+        }
         UserDetails userDetails = this.userDetailsService.loadUserByUsername(decodedJWT.getSubject());
         return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
     }
 
+    // Trusts the roles signed into the token, so no UserDetailsService lookup happens per request
+    private Authentication getAuthenticationFromClaims(DecodedJWT decodedJWT) {
+        List<String> roles = decodedJWT.getClaim("roles").asList(String.class);
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (roles != null){
+            for (String role : roles) {
+                authorities.add(new SimpleGrantedAuthority(role));
+            }
+        }
+        UserDetails userDetails = new User(decodedJWT.getSubject(), "", authorities);
+        return new UsernamePasswordAuthenticationToken(userDetails, "", authorities);
+    }
+
+    // Tokens issued before iat_ms existed fall back to iat, truncated to the second
+    private static Date issuedAt(DecodedJWT decodedJWT){
+        Long issuedAtMillis = decodedJWT.getClaim(ISSUED_AT_MILLIS).asLong();
+        return issuedAtMillis != null ? new Date(issuedAtMillis) : decodedJWT.getIssuedAt();
+    }
+
     private DecodedJWT decodedToken(String token) {
-        Algorithm alg = Algorithm.HMAC256(secretKey.getBytes());
-        JWTVerifier verifier = JWT.require(alg).build();
-        DecodedJWT decodedJWT = verifier.verify(token);
-        return decodedJWT;
+        return tokenCache.get(token, verifier::verify);
     }
 
     public String resolveToken(HttpServletRequest req){
@@ -0,0 +1,189 @@
+package br.com.xmetrocubo.security.jwt;
+
+import br.com.xmetrocubo.model.RevokedRefreshToken;
+import br.com.xmetrocubo.repositories.RevokedRefreshTokenRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Refresh token ids (jti) that must not be accepted again. Lookups never leave memory: a Bloom filter answers
+// "never revoked" for almost every token, only its hits go to the exact set. The table is the copy loaded on startup,
+// written behind by a single thread so a refresh never waits on the database
+@Component
+public class RevokedRefreshTokens {
+
+    private final Logger logger = LoggerFactory.getLogger(RevokedRefreshTokens.class);
+
+    @Value("${security.jwt.revocation.expected-insertions:100000}")
+    private int expectedInsertions = 100000;
+
+    @Value("${security.jwt.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    @Autowired
+    private RevokedRefreshTokenRepository repository;
+
+    // jti -> expiry in epoch millis
+    private final Map<UUID, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+
+    // Revocations not in the table yet; whatever piled up while the writer was busy goes out in one saveAll
+    private final Queue<RevokedRefreshToken> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private ExecutorService writer;
+
+    @PostConstruct
+    protected void init(){
+        for (RevokedRefreshToken token : repository.findUnexpired(new Date())) {
+            revoked.put(UUID.fromString(token.getJti()), token.getExpiresAt().getTime());
+        }
+        rebuildFilter();
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "revoked-refresh-token-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Loaded {} revoked refresh tokens!", revoked.size());
+    }
+
+    // Lets the queued writes finish, so a graceful shutdown does not forget recent revocations
+    @PreDestroy
+    protected void shutdown(){
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public boolean isRevoked(UUID jti){
+        return filter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    // Atomic, so of two requests racing with the same refresh token only one gets to rotate it
+    public boolean revoke(UUID jti, String userName, Date expiresAt){
+        if (revoked.putIfAbsent(jti, expiresAt.getTime()) != null) return false;
+        filter.put(jti);
+        pending.add(new RevokedRefreshToken(jti.toString(), userName, expiresAt));
+        if (flushScheduled.compareAndSet(false, true)) {
+            writer.execute(this::flush);
+        }
+        return true;
+    }
+
+    private void flush(){
+        // Cleared first, so a revocation queued while this batch is written schedules the next one
+        flushScheduled.set(false);
+        List<RevokedRefreshToken> batch = new ArrayList<>();
+        RevokedRefreshToken token;
+        while ((token = pending.poll()) != null) {
+            batch.add(token);
+        }
+        if (batch.isEmpty()) return;
+        try {
+            repository.saveAll(batch);
+        } catch (RuntimeException e) {
+            // Still refused by this instance, only a restart before they expire would accept them again
+            logger.warn("Could not persist {} revoked refresh tokens: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    // Expired tokens are refused by their signature check already, so their entries can go
+    @Transactional
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.purge-interval:3600000}",
+            initialDelayString = "${security.jwt.revocation.purge-interval:3600000}")
+    public int purgeExpired(){
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        repository.deleteExpired(new Date(now));
+        // A Bloom filter cannot forget, so it is rebuilt from what is left
+        rebuildFilter();
+        return before - revoked.size();
+    }
+
+    public int size(){
+        return revoked.size();
+    }
+
+    // A token revoked during the first pass may have gone into the old filter only. The second pass, after publishing,
+    // sees every token revoked before it started, and anything revoked later reads the new filter itself
+    private void rebuildFilter(){
+        var rebuilt = new BloomFilter(Math.max(expectedInsertions, revoked.size() * 2), falsePositiveRate);
+        for (UUID jti : revoked.keySet()) {
+            rebuilt.put(jti);
+        }
+        filter = rebuilt;
+        for (UUID jti : revoked.keySet()) {
+            rebuilt.put(jti);
+        }
+    }
+
+    private static class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashes;
+
+        BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) Math.max(1, (m + 63) / 64));
+            this.bitCount = bits.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        }
+
+        void put(UUID jti){
+            long h1 = mix(jti.getMostSignificantBits());
+            long h2 = mix(jti.getLeastSignificantBits()) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                while (((word = bits.get(index)) & mask) == 0 && !bits.compareAndSet(index, word, word | mask)) {
+                    // Lost a race for the same word, retry with its new value
+                }
+            }
+        }
+
+        boolean mightContain(UUID jti){
+            long h1 = mix(jti.getMostSignificantBits());
+            long h2 = mix(jti.getLeastSignificantBits()) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        private static long mix(long h){
+            h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+            h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+            return h ^ (h >>> 31);
+        }
+    }
+}
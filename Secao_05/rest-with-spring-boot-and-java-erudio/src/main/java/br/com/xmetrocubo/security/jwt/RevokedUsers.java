@@ -0,0 +1,42 @@
+package br.com.xmetrocubo.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Locale;
+
+@Component
+public class RevokedUsers {
+
+    @Value("${security.jwt.token.expire-length:3600000}")
+    private long validityInMilliseconds = 3600000;
+
+    // lower-cased username -> tokens issued up to this millisecond are rejected
+    private Cache<String, Long> revokedUntil;
+
+    @PostConstruct
+    protected void init(){
+        // After the refresh token lifetime every token issued before the revocation has expired on its own
+        revokedUntil = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(validityInMilliseconds * 3))
+                .build();
+    }
+
+    public void revoke(String username){
+        revokedUntil.put(username.toLowerCase(Locale.ROOT), System.currentTimeMillis());
+    }
+
+    public boolean isRevoked(String username, Date issuedAt){
+        Long until = revokedUntil.getIfPresent(username.toLowerCase(Locale.ROOT));
+        if (until == null){
+            return false;
+        }
+        // Millisecond precision: a sign-in right after the revocation must not be caught by it
+        return issuedAt == null || issuedAt.getTime() <= until;
+    }
+}
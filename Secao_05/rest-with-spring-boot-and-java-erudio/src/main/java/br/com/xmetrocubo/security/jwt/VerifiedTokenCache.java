@@ -0,0 +1,89 @@
+package br.com.xmetrocubo.security.jwt;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Component
+public class VerifiedTokenCache {
+
+    @Value("${security.jwt.token.cache.max-size:10000}")
+    private long maxSize = 10000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, DecodedJWT> cache;
+
+    @PostConstruct
+    protected void init(){
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ExpiresAtTokenExpiry())
+                .recordStats()
+                .build();
+        if (meterRegistry != null){
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified");
+        }
+    }
+
+    public DecodedJWT get(String token, Function<String, DecodedJWT> verifier){
+        return cache.get(digest(token), key -> verifier.apply(token));
+    }
+
+    public void invalidateAll(){
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats(){
+        return cache.stats();
+    }
+
+    // Only a digest is kept, so the cache never holds usable bearer tokens
+    private String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class ExpiresAtTokenExpiry implements Expiry<String, DecodedJWT> {
+
+        @Override
+        public long expireAfterCreate(String key, DecodedJWT jwt, long currentTime) {
+            Date expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null){
+                return 0;
+            }
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt.getTime() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package br.com.xmetrocubo.serialization.export;
+
+import br.com.xmetrocubo.util.ExportFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+// Writes one record at a time, so an export never holds more than the current row in memory
+public abstract class RecordWriter<T> implements Flushable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    protected final List<Column<T>> columns;
+
+    protected RecordWriter(List<Column<T>> columns) {
+        this.columns = columns;
+    }
+
+    public static <T> RecordWriter<T> of(ExportFormat format, OutputStream out, List<Column<T>> columns) throws IOException {
+        return format == ExportFormat.CSV ? new CsvWriter<>(out, columns) : new NdjsonWriter<>(out, columns);
+    }
+
+    public abstract void write(T record) throws IOException;
+
+    public static class Column<T> {
+
+        private final String name;
+        private final Function<T, Object> value;
+
+        public Column(String name, Function<T, Object> value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public static <T> Column<T> of(String name, Function<T, Object> value) {
+            return new Column<>(name, value);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Object valueOf(T record) {
+            return value.apply(record);
+        }
+    }
+
+    private static class NdjsonWriter<T> extends RecordWriter<T> {
+
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out, List<Column<T>> columns) throws IOException {
+            super(columns);
+            this.generator = JSON_FACTORY.createGenerator(out);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(T record) throws IOException {
+            generator.writeStartObject();
+            for (Column<T> column : columns) {
+                generator.writeFieldName(column.getName());
+                Object value = column.valueOf(record);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Long || value instanceof Integer) {
+                    generator.writeNumber(((Number) value).longValue());
+                } else if (value instanceof Number) {
+                    generator.writeNumber(((Number) value).doubleValue());
+                } else if (value instanceof Boolean) {
+                    generator.writeBoolean((Boolean) value);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static class CsvWriter<T> extends RecordWriter<T> {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out, List<Column<T>> columns) throws IOException {
+            super(columns);
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) writer.write(',');
+                writeField(columns.get(i).getName());
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(T record) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) writer.write(',');
+                Object value = columns.get(i).valueOf(record);
+                if (value != null) writeField(value.toString());
+            }
+            writer.write("\r\n");
+        }
+
+        // RFC 4180: quote fields holding separators, quotes or line breaks and double the inner quotes
+        private void writeField(String field) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < field.length() && !quote; i++) {
+                char c = field.charAt(i);
+                quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quote) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+}
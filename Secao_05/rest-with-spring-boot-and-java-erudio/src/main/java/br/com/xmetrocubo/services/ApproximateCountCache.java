@@ -0,0 +1,84 @@
+package br.com.xmetrocubo.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+@Component
+public class ApproximateCountCache {
+
+    @Value("${pagination.approximate-count.refresh-after:60000}")
+    private long refreshAfter = 60000;
+
+    @Value("${pagination.approximate-count.expire-after:600000}")
+    private long expireAfter = 600000;
+
+    @Value("${pagination.approximate-count.max-size:1000}")
+    private long maxSize = 1000;
+
+    private ExecutorService refresher;
+
+    private LoadingCache<CountQuery, Long> counts;
+
+    @PostConstruct
+    protected void init(){
+        refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "approximate-count-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Stale totals keep being served while the count runs again in the background
+        counts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(Duration.ofMillis(refreshAfter))
+                .expireAfterWrite(Duration.ofMillis(expireAfter))
+                .executor(refresher)
+                .build(query -> query.counter.getAsLong());
+    }
+
+    @PreDestroy
+    protected void shutdown(){
+        refresher.shutdownNow();
+    }
+
+    // shape identifies the query and its parameters, counter runs the real COUNT(*) on a miss or refresh
+    public long count(String shape, LongSupplier counter){
+        return counts.get(new CountQuery(shape, counter));
+    }
+
+    public void invalidateAll(){
+        counts.invalidateAll();
+    }
+
+    private static class CountQuery {
+
+        private final String shape;
+        private final LongSupplier counter;
+
+        CountQuery(String shape, LongSupplier counter) {
+            this.shape = shape;
+            this.counter = counter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return shape.equals(((CountQuery) o).shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shape);
+        }
+    }
+}
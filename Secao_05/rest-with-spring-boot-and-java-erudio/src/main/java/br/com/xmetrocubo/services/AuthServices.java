@@ -2,16 +2,31 @@ package br.com.xmetrocubo.services;
 
 import br.com.xmetrocubo.data.vo.v1.security.AccountCredentialsVO;
 import br.com.xmetrocubo.data.vo.v1.security.TokenVO;
+import br.com.xmetrocubo.exceptions.ServiceUnavailableException;
 import br.com.xmetrocubo.repositories.UserRepository;
 import br.com.xmetrocubo.security.jwt.JwtTokenProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class AuthServices {
 
@@ -24,8 +39,58 @@ public class AuthServices {
     @Autowired
     private UserRepository repository;
 
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.signin.threads:0}")
+    private int signinThreads = 0;
+
+    @Value("${security.signin.queue-capacity:32}")
+    private int signinQueueCapacity = 32;
+
+    // Password hashing is pure CPU: it runs here, at most one hash per core, instead of on the Tomcat workers
+    private ThreadPoolExecutor signinExecutor;
+
+    @PostConstruct
+    protected void init(){
+        int threads = signinThreads > 0 ? signinThreads : Runtime.getRuntime().availableProcessors();
+        signinExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(signinQueueCapacity), new CustomizableThreadFactory("signin-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        if (meterRegistry != null){
+            ExecutorServiceMetrics.monitor(meterRegistry, signinExecutor, "auth.signin");
+        }
+    }
+
+    @PreDestroy
+    protected void shutdown(){
+        signinExecutor.shutdownNow();
+    }
+
+    // Once the queue is full a burst is turned away right away rather than left waiting for a hash
     @SuppressWarnings("rawtypes")
-    public ResponseEntity signin(AccountCredentialsVO data){
+    public CompletableFuture<ResponseEntity> signin(AccountCredentialsVO data){
+        try{
+            // Carries the correlation id over, so the sign-in thread logs under the request's id
+            var context = MDC.getCopyOfContextMap();
+            return CompletableFuture.supplyAsync(() -> {
+                if (context != null) MDC.setContextMap(context);
+                try{
+                    return authenticate(data);
+                }finally{
+                    MDC.clear();
+                }
+            }, signinExecutor);
+        }catch(RejectedExecutionException e){
+            throw new ServiceUnavailableException("Too many sign-in attempts in progress, please try again shortly!");
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private ResponseEntity authenticate(AccountCredentialsVO data){
         try{
             var username = data.getUserName();
             var password = data.getPassword();
@@ -47,19 +112,16 @@ public class AuthServices {
         }
     }
 
+    // The user comes from the cached UserDetailsService and revocation is checked in memory, so no query runs here
     @SuppressWarnings("rawtypes")
     public ResponseEntity refreshToken(String username, String refreshToken){
-        var user = repository.findByUserName(username);
-
-        var tokenResponse = new TokenVO();
-        if(user != null){
-            tokenResponse = tokenProvider.refreshToken(refreshToken);
-        }
-        else{
-            throw new UsernameNotFoundException("Username "+ username +" not found!");
-        }
-
+        var user = userDetailsService.loadUserByUsername(username);
+        var tokenResponse = tokenProvider.refreshToken(refreshToken, user);
         return ResponseEntity.ok(tokenResponse);
     }
 
+    public void revokeRefreshToken(String refreshToken){
+        tokenProvider.revokeRefreshToken(refreshToken);
+    }
+
 }
@@ -3,20 +3,52 @@ package br.com.xmetrocubo.services;
 import br.com.xmetrocubo.controller.BookController;
 import br.com.xmetrocubo.controller.PersonController;
 import br.com.xmetrocubo.data.vo.v1.BookVO;
+import br.com.xmetrocubo.exceptions.PayloadTooLargeException;
+import br.com.xmetrocubo.exceptions.PreconditionFailedException;
 import br.com.xmetrocubo.exceptions.RequiredObjectIsNullException;
 import br.com.xmetrocubo.exceptions.ResourceNotFoundException;
+import br.com.xmetrocubo.hateoas.ItemLinks;
+import br.com.xmetrocubo.hateoas.SlicedModel;
 import br.com.xmetrocubo.mapper.DozerMapper;
 import br.com.xmetrocubo.model.Book;
 import br.com.xmetrocubo.repositories.BookRepository;
+import br.com.xmetrocubo.serialization.export.RecordWriter;
+import br.com.xmetrocubo.util.CountMode;
+import br.com.xmetrocubo.util.ETags;
+import br.com.xmetrocubo.util.ExportFormat;
+import br.com.xmetrocubo.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
-import org.springframework.hateoas.PagedModel;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.logging.Logger;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
@@ -25,34 +57,159 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Service
 public class BookServices {
 
-    private Logger logger = Logger.getLogger(BookServices.class.getName());
+    private Logger logger = LoggerFactory.getLogger(BookServices.class);
+
+    private static final List<RecordWriter.Column<Book>> EXPORT_COLUMNS = List.of(
+            RecordWriter.Column.of("id", Book::getId),
+            RecordWriter.Column.of("author", Book::getAuthor),
+            RecordWriter.Column.of("launchDate", b -> b.getLaunchDate() == null ? null
+                    : LocalDate.ofInstant(Instant.ofEpochMilli(b.getLaunchDate().getTime()), ZoneOffset.UTC)),
+            RecordWriter.Column.of("price", Book::getPrice),
+            RecordWriter.Column.of("title", Book::getTitle));
 
     @Autowired
     BookRepository repository;
 
     @Autowired
-    private PagedResourcesAssembler assembler;
+    private PagedResourcesAssembler<BookVO> assembler;
+
+    @Autowired
+    private ApproximateCountCache approximateCounts;
+
+    @Autowired
+    private ResponseCache responseCache;
 
-    public PagedModel<EntityModel<BookVO>> findAll(Pageable pageable) {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize = 50;
+
+    @Value("${bulk.max-items:1000}")
+    private int maxBulkItems = 1000;
+
+    public CollectionModel<EntityModel<BookVO>> findAll(Pageable pageable, CountMode countMode) {
 
         logger.info("Finding all book!");
 
-        var bookPage = repository.findAll(pageable);
-        var bookVosPage = bookPage.map(b -> DozerMapper.parseObject(b, BookVO.class));
-        bookVosPage.map(b -> b.add(linkTo(methodOn(BookController.class).findById(b.getKey())).withSelfRel()));
+        if (countMode == CountMode.EXACT) {
+            var bookPage = repository.findAll(pageable);
+            var bookVosPage = bookPage.map(b -> DozerMapper.parseObject(b, BookVO.class));
+            var itemLinks = ItemLinks.of(BookController.class);
+            bookVosPage.map(b -> b.add(itemLinks.self(b.getKey())));
+
+            Link link = linkTo(methodOn(BookController.class).finAdll(pageable.getPageNumber(), pageable.getPageSize(), "asc", null)).withSelfRel();
+            return assembler.toModel(bookVosPage,  link);
+        }
 
-        Link link = linkTo(methodOn(BookController.class).finAdll(pageable.getPageNumber(), pageable.getPageSize(), "asc")).withSelfRel();
-        return assembler.toModel(bookVosPage,  link);
+        var bookSlice = repository.findAllSliced(pageable);
+        var bookVosSlice = bookSlice.map(b -> DozerMapper.parseObject(b, BookVO.class));
+        var itemLinks = ItemLinks.of(BookController.class);
+        bookVosSlice.forEach(b -> b.add(itemLinks.self(b.getKey())));
+        IntFunction<Link> pageLink = page -> linkTo(methodOn(BookController.class).finAdll(page, pageable.getPageSize(), "asc", countMode.name().toLowerCase())).withSelfRel();
+
+        if (countMode == CountMode.APPROXIMATE) {
+            // A stale total must still leave room for the rows this slice has actually seen
+            long seen = pageable.getOffset() + bookSlice.getNumberOfElements() + (bookSlice.hasNext() ? 1 : 0);
+            long total = Math.max(approximateCounts.count("book", repository::count), seen);
+            var bookVosPage = new PageImpl<>(bookVosSlice.getContent(), pageable, total);
+            return assembler.toModel(bookVosPage, pageLink.apply(pageable.getPageNumber()));
+        }
+
+        List<EntityModel<BookVO>> content = new ArrayList<>(bookVosSlice.getNumberOfElements());
+        bookVosSlice.forEach(b -> content.add(EntityModel.of(b)));
+        List<Link> links = new ArrayList<>();
+        links.add(pageLink.apply(bookSlice.getNumber()));
+        if (bookSlice.hasPrevious()) {
+            links.add(pageLink.apply(bookSlice.getNumber() - 1).withRel(IanaLinkRelations.PREV));
+        }
+        if (bookSlice.hasNext()) {
+            links.add(pageLink.apply(bookSlice.getNumber() + 1).withRel(IanaLinkRelations.NEXT));
+        }
+        var metadata = new SlicedModel.SliceMetadata(bookSlice.getSize(), bookSlice.getNumber(), bookSlice.hasNext());
+        return SlicedModel.of(content, metadata, links);
+    }
+
+    public CollectionModel<EntityModel<BookVO>> findAllByCursor(String after, String before, int size, Sort.Direction direction) {
+
+        logger.info("Finding all book by cursor!");
+
+        size = KeysetCursor.pageSize(size);
+
+        boolean backwards = before != null;
+        var cursor = KeysetCursor.decode(backwards ? before : after);
+        // Going back scans in the opposite order and flips the rows afterwards
+        var scan = backwards ? (direction.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC) : direction;
+        Pageable limit = PageRequest.of(0, size + 1, Sort.by(scan, "title").and(Sort.by(scan, "id")));
+
+        List<Book> books;
+        if (cursor == null) {
+            books = repository.findKeysetFirstPage(limit);
+        } else if (scan.isAscending()) {
+            books = repository.findKeysetAfter(cursor.getValue(), cursor.getId(), limit);
+        } else {
+            books = repository.findKeysetBefore(cursor.getValue(), cursor.getId(), limit);
+        }
+
+        boolean hasMore = books.size() > size;
+        books = new ArrayList<>(hasMore ? books.subList(0, size) : books);
+        if (backwards) {
+            Collections.reverse(books);
+        }
+
+        List<EntityModel<BookVO>> content = new ArrayList<>(books.size());
+        var itemLinks = ItemLinks.of(BookController.class);
+        for (BookVO vo : DozerMapper.parseListObjects(books, BookVO.class)) {
+            vo.add(itemLinks.self(vo.getKey()));
+            content.add(EntityModel.of(vo));
+        }
+
+        String dir = direction.name().toLowerCase();
+        List<Link> links = new ArrayList<>();
+        links.add(linkTo(methodOn(BookController.class).findAllByCursor(after, before, size, dir)).withSelfRel());
+        if (!books.isEmpty()) {
+            var first = books.get(0);
+            var last = books.get(books.size() - 1);
+            if (backwards || hasMore) {
+                links.add(linkTo(methodOn(BookController.class).findAllByCursor(KeysetCursor.encode(last.getTitle(), last.getId()), null, size, dir)).withRel(IanaLinkRelations.NEXT));
+            }
+            if (cursor != null && (!backwards || hasMore)) {
+                links.add(linkTo(methodOn(BookController.class).findAllByCursor(null, KeysetCursor.encode(first.getTitle(), first.getId()), size, dir)).withRel(IanaLinkRelations.PREV));
+            }
+        }
+        return CollectionModel.of(content, links);
+    }
+
+    @Transactional(readOnly = true)
+    public void export(ExportFormat format, OutputStream out) throws IOException {
+        logger.info("Exporting all books!");
+        var writer = RecordWriter.of(format, out, EXPORT_COLUMNS);
+        try (Stream<Book> books = repository.streamAll()) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                var row = iterator.next();
+                writer.write(row);
+                // Streamed rows would otherwise pile up in the persistence context until the transaction ends
+                entityManager.detach(row);
+            }
+        }
+        writer.flush();
     }
 
     public BookVO findById(Long id) {
+        return findById(id, version -> false);
+    }
+
+    public BookVO findById(Long id, Predicate<Long> notModified) {
 
         logger.info("Finding one book!");
 
         var entity = repository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No records found for this ID!"));
+        if (notModified.test(entity.getVersion())) return null;
+
         var vo = DozerMapper.parseObject(entity, BookVO.class);
-        vo.add(linkTo(methodOn(BookController.class).findById(id)).withSelfRel());
+        vo.add(ItemLinks.of(BookController.class).self(id));
         return vo;
     }
 
@@ -62,12 +219,93 @@ public class BookServices {
 
         logger.info("Creating one book!");
         var entity = DozerMapper.parseObject(book, Book.class);
+        // The version is read-only for clients, Hibernate seeds it on insert
+        entity.setVersion(null);
         var vo =  DozerMapper.parseObject(repository.save(entity), BookVO.class);
-        vo.add(linkTo(methodOn(BookController.class).findById(vo.getKey())).withSelfRel());
+        responseCache.evict(BookController.class);
+        vo.add(ItemLinks.of(BookController.class).self(vo.getKey()));
         return vo;
     }
 
+    @Transactional
+    public List<BookVO> bulkCreate(List<BookVO> books) {
+        if (books == null || books.contains(null)) throw new RequiredObjectIsNullException();
+        checkBulkSize(books);
+        logger.info("Creating {} books!", books.size());
+        var itemLinks = ItemLinks.of(BookController.class);
+        List<BookVO> vos = new ArrayList<>(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            var entity = DozerMapper.parseObject(books.get(i), Book.class);
+            entity.setId(null);
+            entity.setVersion(null);
+            entityManager.persist(entity);
+            var vo = DozerMapper.parseObject(entity, BookVO.class);
+            vo.add(itemLinks.self(vo.getKey()));
+            vos.add(vo);
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        responseCache.evict(BookController.class);
+        return vos;
+    }
+
+    @Transactional
+    public List<BookVO> bulkUpdate(List<BookVO> books) {
+        if (books == null || books.contains(null)) throw new RequiredObjectIsNullException();
+        checkBulkSize(books);
+        logger.info("Updating {} books!", books.size());
+        var itemLinks = ItemLinks.of(BookController.class);
+        List<BookVO> vos = new ArrayList<>(books.size());
+        for (int from = 0; from < books.size(); from += batchSize) {
+            var chunk = books.subList(from, Math.min(from + batchSize, books.size()));
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (BookVO book : chunk) {
+                if (book.getKey() != null) ids.add(book.getKey());
+            }
+            Map<Long, Book> entities = new HashMap<>();
+            for (Book entity : repository.findAllById(ids)) {
+                entities.put(entity.getId(), entity);
+            }
+            List<Book> updated = new ArrayList<>(chunk.size());
+            for (BookVO book : chunk) {
+                var entity = entities.get(book.getKey());
+                if (entity == null) throw new ResourceNotFoundException("No records found for this ID!");
+                // Same precondition as If-Match on a single update: an item without a version is applied unconditionally
+                if (book.getVersion() != null && !book.getVersion().equals(entity.getVersion())) {
+                    throw new PreconditionFailedException("The book " + entity.getId() + " was modified since it was read!");
+                }
+                entity.setAuthor(book.getAuthor());
+                entity.setLaunchDate(book.getLaunchDate());
+                entity.setPrice(book.getPrice());
+                entity.setTitle(book.getTitle());
+                updated.add(entity);
+            }
+            entityManager.flush();
+            // Mapped after the flush so every item carries the version the next If-Match has to send
+            for (Book entity : updated) {
+                var vo = DozerMapper.parseObject(entity, BookVO.class);
+                vo.add(itemLinks.self(vo.getKey()));
+                vos.add(vo);
+            }
+            entityManager.clear();
+        }
+        responseCache.evict(BookController.class);
+        return vos;
+    }
+
+    private void checkBulkSize(List<BookVO> books) {
+        if (books.size() > maxBulkItems) {
+            throw new PayloadTooLargeException("A bulk request takes at most " + maxBulkItems + " books, got " + books.size());
+        }
+    }
+
     public BookVO update(BookVO book) {
+        return update(book, null);
+    }
+
+    public BookVO update(BookVO book, String ifMatch) {
 
         if (book == null) throw new RequiredObjectIsNullException();
 
@@ -75,6 +313,9 @@ public class BookServices {
 
         var entity = repository.findById(book.getKey())
                 .orElseThrow(() -> new ResourceNotFoundException("No records found for this ID!"));
+        if (!ETags.matches(ifMatch, entity.getVersion())) {
+            throw new PreconditionFailedException("The book was modified since it was read!");
+        }
 
         entity.setAuthor(book.getAuthor());
         entity.setLaunchDate(book.getLaunchDate());
@@ -82,7 +323,8 @@ public class BookServices {
         entity.setTitle(book.getTitle());
 
         var vo =  DozerMapper.parseObject(repository.save(entity), BookVO.class);
-        vo.add(linkTo(methodOn(BookController.class).findById(vo.getKey())).withSelfRel());
+        responseCache.evict(BookController.class);
+        vo.add(ItemLinks.of(BookController.class).self(vo.getKey()));
         return vo;
     }
 
@@ -93,5 +335,6 @@ public class BookServices {
         var entity = repository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No records found for this ID!"));
         repository.delete(entity);
+        responseCache.evict(BookController.class);
     }
 }
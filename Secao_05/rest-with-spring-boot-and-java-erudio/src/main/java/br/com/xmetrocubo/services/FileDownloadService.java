@@ -0,0 +1,199 @@
+package br.com.xmetrocubo.services;
+
+import br.com.xmetrocubo.exceptions.MyFileNotFoundException;
+import br.com.xmetrocubo.model.StoredFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+// Serves stored files with byte-range support (RFC 9110 section 14): single ranges, multipart/byteranges and If-Range.
+// The bytes are not copied through heap arrays: Tomcat's sendfile when the connector offers it, FileChannel.transferTo otherwise
+@Service
+public class FileDownloadService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CRLF = "\r\n";
+
+    // Everything the headers need comes from the catalog; the content hash is a strong ETag on its own.
+    // One stat still confirms the blob exists: sendfile opens it only after the 200 and its headers are committed
+    public void send(Path file, StoredFile stored, String contentType, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!Files.isReadable(file)) throw new MyFileNotFoundException("File not found " + stored.getFileName());
+        send(file, stored.getFileName(), contentType, stored.getSize(), stored.getCreatedAt().getTime(),
+                "\"" + stored.getSha256() + "\"", request, response);
+    }
+
+    public void send(Path file, String filename, String contentType, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String eTag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        send(file, filename, contentType, length, lastModified, eTag, request, response);
+    }
+
+    private void send(Path file, String filename, String contentType, long length, long lastModified, String eTag,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Sets ETag and Last-Modified, and answers 304 for a matching conditional GET
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) return;
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(filename, StandardCharsets.UTF_8).build().toString());
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request, eTag, lastModified)) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!isHead(request)) transfer(file, new long[]{0, length}, request, response);
+            return;
+        }
+
+        List<long[]> regions = regions(rangeHeader, length);
+        if (regions.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (regions.size() == 1) {
+            long[] region = regions.get(0);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(region, length));
+            response.setContentLengthLong(region[1] - region[0]);
+            if (!isHead(request)) transfer(file, region, request, response);
+            return;
+        }
+
+        sendMultipart(file, contentType, length, regions, request, response);
+    }
+
+    // A validator that no longer matches means the client's partial copy is stale, so it gets the whole file instead
+    private static boolean ifRangeMatches(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(eTag);
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // [start, end) pairs for the satisfiable ranges, in request order; empty when none can be served
+    private static List<long[]> regions(String rangeHeader, long length) {
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+        var regions = new ArrayList<long[]>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            try {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length) + 1;
+                // Unsatisfiable on its own, the other ranges can still be served
+                if (start >= length || end <= start) continue;
+                regions.add(new long[]{start, end});
+                total += end - start;
+            } catch (IllegalArgumentException e) {
+                // Same for a suffix range on an empty file
+            }
+        }
+        // Overlapping ranges adding up to more than the file are refused rather than amplified
+        return total > length ? List.of() : regions;
+    }
+
+    private void sendMultipart(Path file, String contentType, long length, List<long[]> regions,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        var partHeaders = new ArrayList<byte[]>(regions.size());
+        long contentLength = 0;
+        for (long[] region : regions) {
+            byte[] header = (CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(region, length) + CRLF + CRLF)
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + region[1] - region[0];
+        }
+        byte[] closing = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (isHead(request)) return;
+
+        var out = response.getOutputStream();
+        try (FileChannel channel = open(file)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < regions.size(); i++) {
+                out.write(partHeaders.get(i));
+                transferTo(channel, regions.get(i), target);
+            }
+        }
+        out.write(closing);
+    }
+
+    private void transfer(Path file, long[] region, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (region[1] == region[0]) return;
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sends the file itself once the handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, region[0]);
+            request.setAttribute(SENDFILE_END, region[1]);
+            return;
+        }
+        try (FileChannel channel = open(file)) {
+            transferTo(channel, region, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new MyFileNotFoundException("File not found " + file.getFileName(), e);
+        }
+    }
+
+    private static void transferTo(FileChannel channel, long[] region, WritableByteChannel target) throws IOException {
+        long position = region[0];
+        while (position < region[1]) {
+            long sent = channel.transferTo(position, region[1] - position, target);
+            if (sent <= 0) throw new IOException("File truncated while it was being sent");
+            position += sent;
+        }
+    }
+
+    private static String contentRange(long[] region, long length) {
+        return "bytes " + region[0] + "-" + (region[1] - 1) + "/" + length;
+    }
+
+    private static boolean isHead(HttpServletRequest request) {
+        return "HEAD".equals(request.getMethod());
+    }
+}
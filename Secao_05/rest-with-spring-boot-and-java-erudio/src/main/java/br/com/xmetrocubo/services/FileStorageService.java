@@ -1,63 +1,383 @@
 package br.com.xmetrocubo.services;
 
 import br.com.xmetrocubo.config.FileStorageConfig;
+import br.com.xmetrocubo.controller.FileController;
+import br.com.xmetrocubo.data.vo.v1.StoredFileVO;
+import br.com.xmetrocubo.data.vo.v1.UploadFileResponseVO;
 import br.com.xmetrocubo.exceptions.FileStorageException;
 import br.com.xmetrocubo.exceptions.MyFileNotFoundException;
+import br.com.xmetrocubo.exceptions.PayloadTooLargeException;
+import br.com.xmetrocubo.mapper.DozerMapper;
+import br.com.xmetrocubo.model.FileBlob;
+import br.com.xmetrocubo.model.StoredFile;
+import br.com.xmetrocubo.repositories.FileBlobRepository;
+import br.com.xmetrocubo.repositories.StoredFileRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+// Content-addressed storage: every distinct content is written once under blobs/<aa>/<bb>/<sha256>,
+// stored_file maps the upload names to it and file_blob counts the names pointing at each blob
 @Service
 public class FileStorageService {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int GC_BATCH_SIZE = 500;
+
+    private static final Duration STALE_PART_AGE = Duration.ofDays(1);
+
+    private final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
+
     private final Path fileStorageLocation;
 
+    private final Path blobLocation;
+
+    private final Path partLocation;
+
+    private final long maxUploadSize;
+
+    private final int uploadBatchConcurrency;
+
+    // Owned here rather than exposed as a bean, which would make Boot drop its applicationTaskExecutor.
+    // A full queue runs the next file on the request thread, slowing that batch down instead of growing the backlog
+    private final ThreadPoolExecutor uploadExecutor;
+
+    private final StoredFileRepository storedFileRepository;
+
+    private final FileBlobRepository fileBlobRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final PagedResourcesAssembler<StoredFileVO> assembler;
+
+    // Copy buffers handed from one upload to the next instead of being allocated per request
+    private final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(32);
+
+    // Placing a blob and counting its reference, or collecting it, happen under the lock of its hash
+    private final ReentrantLock[] locks = new ReentrantLock[64];
+
+    // Pointing a name at a blob, or deleting it, happens under the lock of the name, always taken before the hash lock.
+    // Otherwise two writers of one name both read the same previous row and the released reference is counted once
+    private final ReentrantLock[] nameLocks = new ReentrantLock[64];
+
     @Autowired
-    public FileStorageService(FileStorageConfig fileStorageConfig) {
+    public FileStorageService(FileStorageConfig fileStorageConfig, StoredFileRepository storedFileRepository,
+                              FileBlobRepository fileBlobRepository, TransactionTemplate transactionTemplate,
+                              PagedResourcesAssembler<StoredFileVO> assembler) {
         Path path = Paths.get(fileStorageConfig.getUploadDir()).toAbsolutePath().normalize();
         this.fileStorageLocation = path;
+        this.blobLocation = path.resolve("blobs");
+        this.partLocation = path.resolve(".parts");
+        this.maxUploadSize = fileStorageConfig.getMaxUploadSize().toBytes();
+        this.uploadBatchConcurrency = fileStorageConfig.getUploadBatchConcurrency();
+        this.uploadExecutor = new ThreadPoolExecutor(fileStorageConfig.getUploadThreads(), fileStorageConfig.getUploadThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(fileStorageConfig.getUploadQueueCapacity()),
+                new CustomizableThreadFactory("file-upload-"), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.uploadExecutor.allowCoreThreadTimeOut(true);
+        this.storedFileRepository = storedFileRepository;
+        this.fileBlobRepository = fileBlobRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.assembler = assembler;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        for (int i = 0; i < nameLocks.length; i++) {
+            nameLocks[i] = new ReentrantLock();
+        }
 
         try {
-            Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.blobLocation);
+            Files.createDirectories(this.partLocation);
         } catch(Exception e){
             throw new FileStorageException("Could not create the directory where the uploaded files will be stored!", e);
         }
     }
 
-    public String storeFile(MultipartFile file){
-        String filename = StringUtils.cleanPath(file.getOriginalFilename());
+    @PreDestroy
+    public void shutdown(){
+        uploadExecutor.shutdown();
+    }
+
+    // Stores the files concurrently, at most upload-batch-concurrency at a time so a single large batch
+    // cannot take the whole pool. Results keep the request order and a failed file only fails its own entry
+    public List<UploadFileResponseVO> storeFiles(MultipartFile[] files){
+        var permits = new Semaphore(uploadBatchConcurrency);
+        var results = new ArrayList<CompletableFuture<UploadFileResponseVO>>(files.length);
+        for (MultipartFile file : files) {
+            permits.acquireUninterruptibly();
+            results.add(CompletableFuture.supplyAsync(() -> storeFile(file), uploadExecutor)
+                    .whenComplete((response, e) -> permits.release())
+                    .exceptionally(e -> failed(file, e)));
+        }
+        return results.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private UploadFileResponseVO failed(MultipartFile file, Throwable e){
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        var response = new UploadFileResponseVO(file.getOriginalFilename(), null, file.getContentType(), file.getSize());
+        response.setError(cause.getMessage());
+        return response;
+    }
+
+    public UploadFileResponseVO storeFile(MultipartFile file){
         try {
-            if (filename.contains("..")){
-                throw new FileStorageException("Sorry! Filename contains invalid path sequence " + filename);
+            return storeStream(file.getOriginalFilename(), file.getContentType(), file.getInputStream());
+        } catch(IOException e){
+            throw new FileStorageException("Could not store file " + file.getOriginalFilename() + ". Please try again!", e);
+        }
+    }
+
+    // Writes the body once and hashes it on the way. Content already stored is dropped and only gets a new name,
+    // new content is renamed into the blob tree, so readers never see a partial file
+    public UploadFileResponseVO storeStream(String originalFilename, String contentType, InputStream in){
+        String filename = cleanFilename(originalFilename);
+        Path partFile = null;
+        byte[] buffer = borrowBuffer();
+        try {
+            partFile = createPartFile();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size = 0;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(partFile), digest)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxUploadSize) {
+                        throw new PayloadTooLargeException("File " + filename + " exceeds the maximum upload size of " + maxUploadSize + " bytes");
+                    }
+                    out.write(buffer, 0, read);
+                }
             }
-            Path targetLocation = this.fileStorageLocation.resolve(filename);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-            return filename;
-        } catch(Exception e){
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (place(partFile, filename, contentType, size, sha256)) partFile = null;
+            return new UploadFileResponseVO(filename, null, contentType, size, sha256);
+        } catch (IOException | NoSuchAlgorithmException e){
             throw new FileStorageException("Could not store file " + filename + ". Please try again!", e);
+        } finally {
+            buffers.offer(buffer);
+            deleteQuietly(partFile);
+        }
+    }
+
+    // For uploads assembled elsewhere (chunked sessions): the part file must come from createPartFile
+    public UploadFileResponseVO storeAssembled(Path partFile, String originalFilename, String contentType, long size, String sha256){
+        String filename = cleanFilename(originalFilename);
+        try {
+            if (!place(partFile, filename, contentType, size, sha256)) deleteQuietly(partFile);
+            return new UploadFileResponseVO(filename, null, contentType, size, sha256);
+        } catch (IOException e){
+            throw new FileStorageException("Could not store file " + filename + ". Please try again!", e);
+        }
+    }
+
+    // Created next to the blob tree, so placing it is a rename on the same file system
+    public Path createPartFile() throws IOException {
+        return Files.createTempFile(this.partLocation, "upload-", ".part");
+    }
+
+    public String cleanFilename(String originalFilename){
+        String filename = StringUtils.cleanPath(originalFilename == null ? "" : originalFilename);
+        if (filename.isBlank() || filename.contains("..") || filename.contains("/")){
+            throw new FileStorageException("Sorry! Filename contains invalid path sequence " + filename);
         }
+        return filename;
     }
 
-    public Resource loadFileAsResource(String filename){
+    // Returns whether the part file became the blob; a duplicate leaves it to be deleted
+    private boolean place(Path partFile, String filename, String contentType, long size, String sha256) throws IOException {
+        Path blob = blobPath(sha256);
+        ReentrantLock nameLock = nameLockFor(filename);
+        ReentrantLock lock = lockFor(sha256);
+        nameLock.lock();
+        lock.lock();
         try {
-            Path filePath = this.fileStorageLocation.resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            if (resource.exists()){
-                return resource;
+            boolean placed = false;
+            if (!Files.exists(blob)) {
+                Files.createDirectories(blob.getParent());
+                Files.move(partFile, blob, StandardCopyOption.ATOMIC_MOVE);
+                placed = true;
             }
-            else{
-                throw new MyFileNotFoundException("File not found " + filename);
+            try {
+                transactionTemplate.executeWithoutResult(status -> link(filename, contentType, size, sha256));
+            } catch (RuntimeException e) {
+                if (placed) deleteQuietly(blob);
+                throw e;
             }
-        } catch (Exception e){
-            throw new MyFileNotFoundException("File not found "+ filename, e);
+            return placed;
+        } finally {
+            lock.unlock();
+            nameLock.unlock();
+        }
+    }
+
+    private void link(String filename, String contentType, long size, String sha256){
+        if (fileBlobRepository.incrementRefCount(sha256) == 0) {
+            fileBlobRepository.save(new FileBlob(sha256, size));
+        }
+        var previous = storedFileRepository.findById(filename);
+        previous.ifPresent(stored -> fileBlobRepository.decrementRefCount(stored.getSha256()));
+
+        StoredFile stored = previous.orElseGet(StoredFile::new);
+        stored.setFileName(filename);
+        stored.setSha256(sha256);
+        stored.setContentType(contentType);
+        stored.setSize(size);
+        stored.setCreatedAt(new Date());
+        storedFileRepository.save(stored);
+    }
+
+    public void deleteFile(String filename){
+        ReentrantLock nameLock = nameLockFor(filename);
+        nameLock.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                StoredFile stored = storedFileRepository.findById(filename)
+                        .orElseThrow(() -> new MyFileNotFoundException("File not found " + filename));
+                storedFileRepository.delete(stored);
+                fileBlobRepository.decrementRefCount(stored.getSha256());
+            });
+        } finally {
+            nameLock.unlock();
+        }
+    }
+
+    // Removes blobs no name points to anymore, plus part files left behind by uploads that never finished
+    @Scheduled(fixedDelayString = "${file.gc-interval:3600000}", initialDelayString = "${file.gc-interval:3600000}")
+    public int collectGarbage(){
+        int removed = 0;
+        List<String> unreferenced = fileBlobRepository.findUnreferenced(PageRequest.of(0, GC_BATCH_SIZE));
+        for (String sha256 : unreferenced) {
+            ReentrantLock lock = lockFor(sha256);
+            lock.lock();
+            try {
+                Integer deleted = transactionTemplate.execute(status -> fileBlobRepository.deleteIfUnreferenced(sha256));
+                if (deleted != null && deleted > 0) {
+                    deleteQuietly(blobPath(sha256));
+                    removed++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Instant staleBefore = Instant.now().minus(STALE_PART_AGE);
+        try (Stream<Path> parts = Files.list(partLocation)) {
+            parts.filter(part -> isOlderThan(part, staleBefore)).forEach(FileStorageService::deleteQuietly);
+        } catch (IOException e) {
+            logger.warn("Could not clean up stale uploads: {}", e.getMessage());
+        }
+
+        if (removed > 0) logger.info("Removed {} unreferenced blobs", removed);
+        return removed;
+    }
+
+    // Pages over the catalog, newest first by default, without listing upload-dir
+    public CollectionModel<EntityModel<StoredFileVO>> findAll(Pageable pageable){
+        logger.info("Finding all stored files!");
+        var filesPage = storedFileRepository.findAll(pageable).map(f -> DozerMapper.parseObject(f, StoredFileVO.class));
+        var downloadPrefix = linkTo(FileController.class).slash("downloadFile").withSelfRel().getHref() + "/";
+        filesPage.forEach(f -> f.add(Link.of(downloadPrefix + UriUtils.encodePathSegment(f.getFileName(), StandardCharsets.UTF_8))));
+        Link link = linkTo(methodOn(FileController.class).findAll(pageable.getPageNumber(), pageable.getPageSize(), "desc")).withSelfRel();
+        return assembler.toModel(filesPage, link);
+    }
+
+    // Served from the second-level cache after the first lookup
+    public Optional<StoredFile> findMetadata(String filename){
+        return storedFileRepository.findById(filename);
+    }
+
+    // Derived from the hash alone, without listing upload-dir; the download checks the blob before sending headers
+    public Path contentPath(StoredFile stored){
+        return blobPath(stored.getSha256());
+    }
+
+    // Files uploaded before the content-addressed store still sit under their own name and have no metadata
+    public Path loadLegacyFile(String filename){
+        Path filePath = this.fileStorageLocation.resolve(filename).normalize();
+        if (!filePath.startsWith(this.fileStorageLocation) || !Files.isRegularFile(filePath)){
+            throw new MyFileNotFoundException("File not found " + filename);
+        }
+        return filePath;
+    }
+
+    // Two levels of 256 directories keep every directory small even with millions of blobs
+    private Path blobPath(String sha256){
+        return blobLocation.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    private ReentrantLock lockFor(String sha256){
+        return locks[Math.floorMod(sha256.hashCode(), locks.length)];
+    }
+
+    private ReentrantLock nameLockFor(String filename){
+        return nameLocks[Math.floorMod(filename.hashCode(), nameLocks.length)];
+    }
+
+    private byte[] borrowBuffer(){
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    private static boolean isOlderThan(Path file, Instant instant){
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(instant);
+        } catch (IOException e){
+            return false;
+        }
+    }
+
+    public static void deleteQuietly(Path file){
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e){
+            // Best effort: stale part files are swept again by collectGarbage
         }
     }
 
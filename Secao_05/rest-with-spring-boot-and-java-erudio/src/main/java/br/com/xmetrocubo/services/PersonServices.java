@@ -2,21 +2,53 @@ package br.com.xmetrocubo.services;
 
 import br.com.xmetrocubo.controller.PersonController;
 import br.com.xmetrocubo.data.vo.v1.PersonVO;
+import br.com.xmetrocubo.exceptions.PayloadTooLargeException;
+import br.com.xmetrocubo.exceptions.PreconditionFailedException;
 import br.com.xmetrocubo.exceptions.RequiredObjectIsNullException;
 import br.com.xmetrocubo.exceptions.ResourceNotFoundException;
+import br.com.xmetrocubo.hateoas.ItemLinks;
+import br.com.xmetrocubo.hateoas.SlicedModel;
 import br.com.xmetrocubo.mapper.DozerMapper;
 import br.com.xmetrocubo.model.Person;
 import br.com.xmetrocubo.repositories.PersonRepository;
+import br.com.xmetrocubo.serialization.export.RecordWriter;
+import br.com.xmetrocubo.util.CountMode;
+import br.com.xmetrocubo.util.ETags;
+import br.com.xmetrocubo.util.ExportFormat;
+import br.com.xmetrocubo.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
-import org.springframework.hateoas.PagedModel;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.logging.Logger;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
@@ -24,7 +56,17 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Service
 public class PersonServices {
 
-    private final Logger logger = Logger.getLogger(PersonServices.class.getName());
+    private final Logger logger = LoggerFactory.getLogger(PersonServices.class);
+
+    private static final int NGRAM_TOKEN_SIZE = 2;
+
+    private static final List<RecordWriter.Column<Person>> EXPORT_COLUMNS = List.of(
+            RecordWriter.Column.of("id", Person::getId),
+            RecordWriter.Column.of("firstName", Person::getFirstName),
+            RecordWriter.Column.of("lastName", Person::getLastName),
+            RecordWriter.Column.of("address", Person::getAddress),
+            RecordWriter.Column.of("gender", Person::getGender),
+            RecordWriter.Column.of("enabled", Person::getEnabled));
 
     @Autowired
     private PersonRepository repository;
@@ -32,37 +74,198 @@ public class PersonServices {
     @Autowired
     private PagedResourcesAssembler<PersonVO> assembler;
 
+    @Autowired
+    private ApproximateCountCache approximateCounts;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize = 50;
+
+    @Value("${bulk.max-items:1000}")
+    private int maxBulkItems = 1000;
+
     public PersonVO findById(Long id){
+        return findById(id, version -> false);
+    }
+
+    // Returns null when notModified accepts the current version, before any mapping or link building is done
+    public PersonVO findById(Long id, Predicate<Long> notModified){
         logger.info("Finding one PersonVO");
         var entity = repository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No records found for this ID!"));
+        if (notModified.test(entity.getVersion())){
+            return null;
+        }
         var vo = DozerMapper.parseObject(entity, PersonVO.class);
-        vo.add(linkTo(methodOn(PersonController.class).findById(id)).withSelfRel());
+        vo.add(ItemLinks.of(PersonController.class).self(id));
         return vo;
     }
 
-    public PagedModel<EntityModel<PersonVO>> findAll(Pageable pageable){
+    public CollectionModel<EntityModel<PersonVO>> findAll(Pageable pageable, CountMode countMode){
         logger.info("Finding all people");
 
-        var personPage = repository.findAll(pageable);
+        if (countMode == CountMode.EXACT){
+            var personPage = repository.findAll(pageable);
 
-        var personVosPage = personPage.map(p -> DozerMapper.parseObject(p, PersonVO.class));
-        personVosPage.map(p -> p.add(linkTo(methodOn(PersonController.class).findById(p.getKey())).withSelfRel()));
+            var personVosPage = personPage.map(p -> DozerMapper.parseObject(p, PersonVO.class));
+            var itemLinks = ItemLinks.of(PersonController.class);
+            personVosPage.map(p -> p.add(itemLinks.self(p.getKey())));
 
-        Link link = linkTo(methodOn(PersonController.class).finAdll(pageable.getPageNumber(), pageable.getPageSize(), "asc")).withSelfRel();
-        return assembler.toModel(personVosPage, link);
+            Link link = linkTo(methodOn(PersonController.class).finAdll(pageable.getPageNumber(), pageable.getPageSize(), "asc", null)).withSelfRel();
+            return assembler.toModel(personVosPage, link);
+        }
+
+        var personSlice = repository.findAllSliced(pageable);
+        return toModel(personSlice, countMode,
+                () -> approximateCounts.count("person", repository::count),
+                page -> linkTo(methodOn(PersonController.class).finAdll(page, pageable.getPageSize(), "asc", countMode.name().toLowerCase())).withSelfRel());
     }
 
-    public PagedModel<EntityModel<PersonVO>> findPersonByName(String firstName, Pageable pageable){
+    public CollectionModel<EntityModel<PersonVO>> findPersonByName(String firstName, Pageable pageable, CountMode countMode){
         logger.info("Finding all people");
 
-        var personPage = repository.findPersonByName(firstName, pageable);
+        if (countMode == CountMode.EXACT){
+            var term = fullTextTerm(firstName);
+            Page<Person> personPage;
+            if (term == null){
+                personPage = repository.findPersonByName(firstName, pageable);
+            } else {
+                var columnPage = repository.searchPersonByName(term, firstName, toColumnSort(pageable));
+                personPage = new PageImpl<>(columnPage.getContent(), pageable, columnPage.getTotalElements());
+            }
 
-        var personVosPage = personPage.map(p -> DozerMapper.parseObject(p, PersonVO.class));
-        personVosPage.map(p -> p.add(linkTo(methodOn(PersonController.class).findById(p.getKey())).withSelfRel()));
+            var personVosPage = personPage.map(p -> DozerMapper.parseObject(p, PersonVO.class));
+            var itemLinks = ItemLinks.of(PersonController.class);
+            personVosPage.map(p -> p.add(itemLinks.self(p.getKey())));
 
-        Link link = linkTo(methodOn(PersonController.class).finAdll(pageable.getPageNumber(), pageable.getPageSize(), "asc")).withSelfRel();
-        return assembler.toModel(personVosPage, link);
+            Link link = linkTo(methodOn(PersonController.class).finAdll(pageable.getPageNumber(), pageable.getPageSize(), "asc", null)).withSelfRel();
+            return assembler.toModel(personVosPage, link);
+        }
+
+        var term = fullTextTerm(firstName);
+        Slice<Person> personSlice;
+        LongSupplier count;
+        if (term == null){
+            personSlice = repository.findPersonSliceByName(firstName, pageable);
+            count = () -> repository.countPersonByName(firstName);
+        } else {
+            var columnSlice = repository.searchPersonSliceByName(term, firstName, toColumnSort(pageable));
+            personSlice = new SliceImpl<>(columnSlice.getContent(), pageable, columnSlice.hasNext());
+            count = () -> repository.countSearchPersonByName(term, firstName);
+        }
+        return toModel(personSlice, countMode,
+                () -> approximateCounts.count("person:name:" + firstName.toLowerCase(), count),
+                page -> linkTo(methodOn(PersonController.class).findPersonByName(firstName, page, pageable.getPageSize(), "asc", countMode.name().toLowerCase())).withSelfRel());
+    }
+
+    // Quoted so the ngram parser matches the term as a phrase, null when it is shorter than the ngram token size
+    private static String fullTextTerm(String name){
+        var stripped = name == null ? "" : name.replace("\"", "").trim();
+        return stripped.length() < NGRAM_TOKEN_SIZE ? null : "\"" + stripped + "\"";
+    }
+
+    // Native queries sort by column, the links keep the property names the client sent
+    private static Pageable toColumnSort(Pageable pageable){
+        var order = pageable.getSort().getOrderFor("firstName");
+        var direction = order == null ? Sort.Direction.ASC : order.getDirection();
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(direction, "first_name"));
+    }
+
+    private CollectionModel<EntityModel<PersonVO>> toModel(Slice<Person> personSlice, CountMode countMode,
+                                                           LongSupplier approximateTotal, IntFunction<Link> pageLink){
+        var personVosSlice = personSlice.map(p -> DozerMapper.parseObject(p, PersonVO.class));
+        var itemLinks = ItemLinks.of(PersonController.class);
+        personVosSlice.forEach(p -> p.add(itemLinks.self(p.getKey())));
+
+        if (countMode == CountMode.APPROXIMATE){
+            // A stale total must still leave room for the rows this slice has actually seen
+            long seen = personSlice.getPageable().getOffset() + personSlice.getNumberOfElements() + (personSlice.hasNext() ? 1 : 0);
+            long total = Math.max(approximateTotal.getAsLong(), seen);
+            var personVosPage = new PageImpl<>(personVosSlice.getContent(), personSlice.getPageable(), total);
+            return assembler.toModel(personVosPage, pageLink.apply(personSlice.getNumber()));
+        }
+
+        List<EntityModel<PersonVO>> content = new ArrayList<>(personVosSlice.getNumberOfElements());
+        personVosSlice.forEach(p -> content.add(EntityModel.of(p)));
+        List<Link> links = new ArrayList<>();
+        links.add(pageLink.apply(personSlice.getNumber()));
+        if (personSlice.hasPrevious()){
+            links.add(pageLink.apply(personSlice.getNumber() - 1).withRel(IanaLinkRelations.PREV));
+        }
+        if (personSlice.hasNext()){
+            links.add(pageLink.apply(personSlice.getNumber() + 1).withRel(IanaLinkRelations.NEXT));
+        }
+        var metadata = new SlicedModel.SliceMetadata(personSlice.getSize(), personSlice.getNumber(), personSlice.hasNext());
+        return SlicedModel.of(content, metadata, links);
+    }
+
+    public CollectionModel<EntityModel<PersonVO>> findAllByCursor(String after, String before, int size, Sort.Direction direction){
+        logger.info("Finding all people by cursor");
+        size = KeysetCursor.pageSize(size);
+
+        boolean backwards = before != null;
+        var cursor = KeysetCursor.decode(backwards ? before : after);
+        // Going back scans in the opposite order and flips the rows afterwards
+        var scan = backwards ? (direction.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC) : direction;
+        Pageable limit = PageRequest.of(0, size + 1, Sort.by(scan, "firstName").and(Sort.by(scan, "id")));
+
+        List<Person> people;
+        if (cursor == null){
+            people = repository.findKeysetFirstPage(limit);
+        } else if (scan.isAscending()){
+            people = repository.findKeysetAfter(cursor.getValue(), cursor.getId(), limit);
+        } else {
+            people = repository.findKeysetBefore(cursor.getValue(), cursor.getId(), limit);
+        }
+
+        boolean hasMore = people.size() > size;
+        people = new ArrayList<>(hasMore ? people.subList(0, size) : people);
+        if (backwards){
+            Collections.reverse(people);
+        }
+
+        List<EntityModel<PersonVO>> content = new ArrayList<>(people.size());
+        var itemLinks = ItemLinks.of(PersonController.class);
+        for (PersonVO vo : DozerMapper.parseListObjects(people, PersonVO.class)) {
+            vo.add(itemLinks.self(vo.getKey()));
+            content.add(EntityModel.of(vo));
+        }
+
+        String dir = direction.name().toLowerCase();
+        List<Link> links = new ArrayList<>();
+        links.add(linkTo(methodOn(PersonController.class).findAllByCursor(after, before, size, dir)).withSelfRel());
+        if (!people.isEmpty()){
+            var first = people.get(0);
+            var last = people.get(people.size() - 1);
+            if (backwards || hasMore){
+                links.add(linkTo(methodOn(PersonController.class).findAllByCursor(KeysetCursor.encode(last.getFirstName(), last.getId()), null, size, dir)).withRel(IanaLinkRelations.NEXT));
+            }
+            if (cursor != null && (!backwards || hasMore)){
+                links.add(linkTo(methodOn(PersonController.class).findAllByCursor(null, KeysetCursor.encode(first.getFirstName(), first.getId()), size, dir)).withRel(IanaLinkRelations.PREV));
+            }
+        }
+        return CollectionModel.of(content, links);
+    }
+
+    @Transactional(readOnly = true)
+    public void export(ExportFormat format, OutputStream out) throws IOException {
+        logger.info("Exporting all people");
+        var writer = RecordWriter.of(format, out, EXPORT_COLUMNS);
+        try (Stream<Person> people = repository.streamAll()) {
+            Iterator<Person> iterator = people.iterator();
+            while (iterator.hasNext()) {
+                var row = iterator.next();
+                writer.write(row);
+                // Streamed rows would otherwise pile up in the persistence context until the transaction ends
+                entityManager.detach(row);
+            }
+        }
+        writer.flush();
     }
 
     public PersonVO create(PersonVO person) {
@@ -71,36 +274,124 @@ public class PersonServices {
         }
         logger.info("Creating one PersonVO");
         var entity = DozerMapper.parseObject(person, Person.class);
+        // The version is read-only for clients, Hibernate seeds it on insert
+        entity.setVersion(null);
         var vo =  DozerMapper.parseObject(repository.save(entity), PersonVO.class);
-        vo.add(linkTo(methodOn(PersonController.class).findById(vo.getKey())).withSelfRel());
+        responseCache.evict(PersonController.class);
+        vo.add(ItemLinks.of(PersonController.class).self(vo.getKey()));
         return vo;
     }
 
+    @Transactional
+    public List<PersonVO> bulkCreate(List<PersonVO> people) {
+        if (people == null || people.contains(null)) throw new RequiredObjectIsNullException();
+        checkBulkSize(people);
+        logger.info("Creating {} PersonVOs", people.size());
+        var itemLinks = ItemLinks.of(PersonController.class);
+        List<PersonVO> vos = new ArrayList<>(people.size());
+        for (int i = 0; i < people.size(); i++) {
+            var entity = DozerMapper.parseObject(people.get(i), Person.class);
+            entity.setId(null);
+            entity.setVersion(null);
+            entityManager.persist(entity);
+            var vo = DozerMapper.parseObject(entity, PersonVO.class);
+            vo.add(itemLinks.self(vo.getKey()));
+            vos.add(vo);
+            if ((i + 1) % batchSize == 0) {
+                // Sends the pending JDBC batch and empties the persistence context before the next one
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        responseCache.evict(PersonController.class);
+        return vos;
+    }
+
+    @Transactional
+    public List<PersonVO> bulkUpdate(List<PersonVO> people) {
+        if (people == null || people.contains(null)) throw new RequiredObjectIsNullException();
+        checkBulkSize(people);
+        logger.info("Updating {} PersonVOs", people.size());
+        var itemLinks = ItemLinks.of(PersonController.class);
+        List<PersonVO> vos = new ArrayList<>(people.size());
+        for (int from = 0; from < people.size(); from += batchSize) {
+            var chunk = people.subList(from, Math.min(from + batchSize, people.size()));
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (PersonVO person : chunk) {
+                if (person.getKey() != null) ids.add(person.getKey());
+            }
+            Map<Long, Person> entities = new HashMap<>();
+            for (Person entity : repository.findAllById(ids)) {
+                entities.put(entity.getId(), entity);
+            }
+            List<Person> updated = new ArrayList<>(chunk.size());
+            for (PersonVO person : chunk) {
+                var entity = entities.get(person.getKey());
+                if (entity == null) throw new ResourceNotFoundException("No records found for this ID!");
+                // Same precondition as If-Match on a single update: an item without a version is applied unconditionally
+                if (person.getVersion() != null && !person.getVersion().equals(entity.getVersion())) {
+                    throw new PreconditionFailedException("The person " + entity.getId() + " was modified since it was read!");
+                }
+                entity.setFirstName(person.getFirstName());
+                entity.setLastName(person.getLastName());
+                entity.setAddress(person.getAddress());
+                entity.setGender(person.getGender());
+                updated.add(entity);
+            }
+            entityManager.flush();
+            // Mapped after the flush so every item carries the version the next If-Match has to send
+            for (Person entity : updated) {
+                var vo = DozerMapper.parseObject(entity, PersonVO.class);
+                vo.add(itemLinks.self(vo.getKey()));
+                vos.add(vo);
+            }
+            entityManager.clear();
+        }
+        responseCache.evict(PersonController.class);
+        return vos;
+    }
+
+    private void checkBulkSize(List<PersonVO> people) {
+        if (people.size() > maxBulkItems) {
+            throw new PayloadTooLargeException("A bulk request takes at most " + maxBulkItems + " people, got " + people.size());
+        }
+    }
+
     public PersonVO update(PersonVO person) {
+        return update(person, null);
+    }
+
+    public PersonVO update(PersonVO person, String ifMatch) {
         if (person == null){
             throw new RequiredObjectIsNullException();
         }
         logger.info("Updating one PersonVO");
         var entity = repository.findById(person.getKey())
                 .orElseThrow(() -> new ResourceNotFoundException("No records found for this ID!"));
+        // A writer racing past this check still fails on the version column when the merge is flushed
+        if (!ETags.matches(ifMatch, entity.getVersion())){
+            throw new PreconditionFailedException("The person was modified since it was read!");
+        }
         entity.setFirstName(person.getFirstName());
         entity.setLastName(person.getLastName());
         entity.setAddress(person.getAddress());
         entity.setGender(person.getGender());
         var vo =  DozerMapper.parseObject(repository.save(entity), PersonVO.class);
-        vo.add(linkTo(methodOn(PersonController.class).findById(vo.getKey())).withSelfRel());
+        responseCache.evict(PersonController.class);
+        vo.add(ItemLinks.of(PersonController.class).self(vo.getKey()));
         return vo;
     }
 
     @Transactional
     public PersonVO disablePerson(Long id){
         logger.info("Disabling one PersonVO");
-        repository.disablePerson(id);
-
         var entity = repository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No records found for this ID!"));
+        // Dirty checking updates this entry in the person region, a bulk UPDATE would invalidate the whole region
+        entity.setEnabled(false);
+        responseCache.evict(PersonController.class);
         var vo = DozerMapper.parseObject(entity, PersonVO.class);
-        vo.add(linkTo(methodOn(PersonController.class).findById(id)).withSelfRel());
+        vo.add(ItemLinks.of(PersonController.class).self(id));
         return vo;
     }
 
@@ -109,6 +400,7 @@ public class PersonServices {
         var entity = repository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No records found for this ID!"));
         repository.delete(entity);
+        responseCache.evict(PersonController.class);
     }
 
 }
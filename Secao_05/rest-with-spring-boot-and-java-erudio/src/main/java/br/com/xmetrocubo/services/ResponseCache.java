@@ -0,0 +1,124 @@
+package br.com.xmetrocubo.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Serialized list pages, served by ResponseCacheFilter without touching the controllers again.
+// Every cached path has a generation that is part of the key: a write bumps it, so older pages just stop
+// being reachable and age out of the size bound instead of being scanned and removed
+@Component
+public class ResponseCache {
+
+    @Value("${response-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${response-cache.paths:/api/person/v1,/api/book/v1}")
+    private String[] paths = {"/api/person/v1", "/api/book/v1"};
+
+    @Value("${response-cache.max-weight:67108864}")
+    private long maxWeight = 67108864;
+
+    @Value("${response-cache.expire-after:60000}")
+    private long expireAfter = 60000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, AtomicLong> generations = new HashMap<>();
+
+    private Cache<String, CachedResponse> cache;
+
+    @PostConstruct
+    protected void init(){
+        for (String path : paths) {
+            generations.put(path.trim(), new AtomicLong());
+        }
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String key, CachedResponse response) -> key.length() * 2 + response.getBody().length)
+                .expireAfterWrite(Duration.ofMillis(expireAfter))
+                .recordStats()
+                .build();
+        if (meterRegistry != null){
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "http.responses");
+        }
+    }
+
+    public boolean isCacheable(String path){
+        return enabled && generations.containsKey(path);
+    }
+
+    public long generation(String path){
+        return generations.get(path).get();
+    }
+
+    public CachedResponse get(String key){
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, CachedResponse response){
+        cache.put(key, response);
+    }
+
+    // Bumped after commit: bumping earlier would let a reader cache the old rows under the new generation
+    public void evict(Class<?> controller){
+        var mapping = AnnotatedElementUtils.findMergedAnnotation(controller, RequestMapping.class);
+        if (mapping == null || mapping.path().length == 0) return;
+        var prefix = mapping.path()[0];
+        if (TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(prefix);
+                }
+            });
+        } else {
+            bump(prefix);
+        }
+    }
+
+    public void invalidateAll(){
+        generations.values().forEach(AtomicLong::incrementAndGet);
+        cache.invalidateAll();
+    }
+
+    private void bump(String prefix){
+        generations.forEach((path, generation) -> {
+            if (path.startsWith(prefix)) generation.incrementAndGet();
+        });
+    }
+
+    public static class CachedResponse {
+
+        private final String contentType;
+        private final byte[] body;
+
+        public CachedResponse(String contentType, byte[] body) {
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
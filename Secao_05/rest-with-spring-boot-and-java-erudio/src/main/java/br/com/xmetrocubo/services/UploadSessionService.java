@@ -0,0 +1,379 @@
+package br.com.xmetrocubo.services;
+
+import br.com.xmetrocubo.config.FileStorageConfig;
+import br.com.xmetrocubo.data.vo.v1.UploadFileResponseVO;
+import br.com.xmetrocubo.data.vo.v1.UploadSessionVO;
+import br.com.xmetrocubo.exceptions.ConflictException;
+import br.com.xmetrocubo.exceptions.FileStorageException;
+import br.com.xmetrocubo.exceptions.InvalidUploadException;
+import br.com.xmetrocubo.exceptions.PayloadTooLargeException;
+import br.com.xmetrocubo.exceptions.RequiredObjectIsNullException;
+import br.com.xmetrocubo.exceptions.ResourceNotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Resumable uploads: a session owns a part file preallocated to the final size, chunks are written straight
+// to their offset in any order, so completing the session is a rename and never a concatenation.
+// The file hash follows the contiguous prefix as chunks arrive; only chunks that arrive ahead of it are read back
+@Service
+public class UploadSessionService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileStorageConfig fileStorageConfig;
+
+    private Cache<String, UploadSession> sessions;
+
+    @PostConstruct
+    protected void init(){
+        long idle = Duration.ofMillis(fileStorageConfig.getUploadSessionExpireAfter()).toNanos();
+        // Abandoned sessions expire after being idle for a while, or give way to newer ones past the maximum count,
+        // and take their part file with them. A session with a chunk being written is pinned: it weighs nothing
+        // and does not expire until the chunk is released, so its part file is never deleted under the writer
+        sessions = Caffeine.newBuilder()
+                .maximumWeight(fileStorageConfig.getUploadSessionMaxCount())
+                .weigher((String id, UploadSession session) -> session.pins > 0 ? 0 : 1)
+                .expireAfter(new Expiry<String, UploadSession>() {
+                    @Override
+                    public long expireAfterCreate(String id, UploadSession session, long currentTime) {
+                        return session.pins > 0 ? Long.MAX_VALUE : idle;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, UploadSession session, long currentTime, long currentDuration) {
+                        return session.pins > 0 ? Long.MAX_VALUE : idle;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, UploadSession session, long currentTime, long currentDuration) {
+                        return session.pins > 0 ? Long.MAX_VALUE : idle;
+                    }
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener((String id, UploadSession session, RemovalCause cause) -> {
+                    if (session != null) FileStorageService.deleteQuietly(session.partFile);
+                })
+                .build();
+    }
+
+    public UploadSessionVO create(UploadSessionVO request){
+        if (request == null || request.getSize() == null || request.getSize() < 0) {
+            throw new RequiredObjectIsNullException("An upload session needs the file name and size!");
+        }
+        if (request.getSize() > fileStorageConfig.getMaxUploadSize().toBytes()) {
+            throw new PayloadTooLargeException("File " + request.getFileName() + " exceeds the maximum upload size of "
+                    + fileStorageConfig.getMaxUploadSize().toBytes() + " bytes");
+        }
+        String filename = fileStorageService.cleanFilename(request.getFileName());
+        try {
+            Path partFile = fileStorageService.createPartFile();
+            try (var file = new RandomAccessFile(partFile.toFile(), "rw")) {
+                file.setLength(request.getSize());
+            }
+            var session = new UploadSession(UUID.randomUUID().toString(), filename, request.getContentType(),
+                    request.getSize(), request.getSha256(), partFile);
+            sessions.put(session.id, session);
+            return session.toVO();
+        } catch (IOException e){
+            throw new FileStorageException("Could not start the upload of " + filename + ". Please try again!", e);
+        }
+    }
+
+    public UploadSessionVO find(String id){
+        return session(id).toVO();
+    }
+
+    public UploadSessionVO writeChunk(String id, long offset, long length, String chunkSha256, InputStream in){
+        var session = session(id);
+        if (length <= 0) throw new InvalidUploadException("Chunks must be sent with their Content-Length");
+        // Compared without adding, so a huge offset or length cannot overflow past the check
+        if (offset < 0 || length > session.size - offset) {
+            throw new InvalidUploadException("Chunk of " + length + " bytes at " + offset + " is outside of the " + session.size + " bytes file");
+        }
+        long end = offset + length;
+
+        pin(session);
+        try {
+            return write(session, offset, end, length, chunkSha256, in);
+        } finally {
+            unpin(session);
+        }
+    }
+
+    private UploadSessionVO write(UploadSession session, long offset, long end, long length, String chunkSha256, InputStream in){
+        MessageDigest prefixDigest = session.reserve(offset, end);
+        boolean written = false;
+        try (FileChannel channel = FileChannel.open(session.partFile, StandardOpenOption.WRITE)) {
+            MessageDigest chunkDigest = sha256();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = offset;
+            int read;
+            while (position < end && (read = in.read(buffer, 0, (int) Math.min(buffer.length, end - position))) != -1) {
+                chunkDigest.update(buffer, 0, read);
+                if (prefixDigest != null) prefixDigest.update(buffer, 0, read);
+                var data = ByteBuffer.wrap(buffer, 0, read);
+                while (data.hasRemaining()) {
+                    position += channel.write(data, position);
+                }
+            }
+            if (position != end) {
+                throw new InvalidUploadException("Chunk ended after " + (position - offset) + " of its " + length + " bytes");
+            }
+            if (chunkSha256 != null && !chunkSha256.equalsIgnoreCase(HexFormat.of().formatHex(chunkDigest.digest()))) {
+                throw new InvalidUploadException("Chunk " + offset + "-" + (end - 1) + " does not match its SHA-256");
+            }
+            written = true;
+        } catch (IOException e){
+            throw new FileStorageException("Could not write the chunk at " + offset + ". Please try again!", e);
+        } finally {
+            session.release(offset, end, written, prefixDigest);
+        }
+        return session.toVO();
+    }
+
+    public UploadFileResponseVO complete(String id){
+        var session = session(id);
+        session.lock.lock();
+        try {
+            if (session.completed) throw new ConflictException("Upload " + id + " is already completing");
+            if (session.received() != session.size) {
+                throw new InvalidUploadException("Upload " + id + " is missing bytes, received " + session.ranges());
+            }
+            try {
+                session.catchUp();
+            } catch (IOException e){
+                throw new FileStorageException("Could not complete upload " + id + ". Please try again!", e);
+            }
+            String sha256 = HexFormat.of().formatHex(session.prefixDigest.digest());
+            session.completed = true;
+            // From here on the session is spent: the part file is either stored or discarded with it
+            try {
+                if (session.expectedSha256 != null && !session.expectedSha256.equalsIgnoreCase(sha256)) {
+                    throw new InvalidUploadException("Upload " + id + " does not match its SHA-256, the session was discarded");
+                }
+                return fileStorageService.storeAssembled(session.partFile, session.fileName, session.contentType, session.size, sha256);
+            } finally {
+                sessions.invalidate(id);
+            }
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    public void abort(String id){
+        session(id);
+        sessions.invalidate(id);
+    }
+
+    private UploadSession session(String id){
+        var session = sessions.getIfPresent(id);
+        if (session == null) throw new ResourceNotFoundException("No upload session found for this ID!");
+        return session;
+    }
+
+    // Remapping the entry to itself makes the cache weigh it and compute its expiry again
+    private void pin(UploadSession session){
+        var pinned = sessions.asMap().computeIfPresent(session.id, (id, current) -> {
+            if (current == session) current.pins++;
+            return current;
+        });
+        if (pinned != session) throw new ResourceNotFoundException("No upload session found for this ID!");
+    }
+
+    private void unpin(UploadSession session){
+        sessions.asMap().computeIfPresent(session.id, (id, current) -> {
+            if (current == session) current.pins--;
+            return current;
+        });
+    }
+
+    private static MessageDigest sha256(){
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class UploadSession {
+
+        private final String id;
+        private final String fileName;
+        private final String contentType;
+        private final long size;
+        private final String expectedSha256;
+        private final Path partFile;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // Received bytes as merged [start, end) ranges, keyed by start
+        private final TreeMap<Long, Long> received = new TreeMap<>();
+        private final List<long[]> inFlight = new ArrayList<>();
+
+        // Hash of the bytes [0, watermark); a chunk starting at the watermark hashes itself while streaming
+        private MessageDigest prefixDigest = sha256();
+        private long watermark;
+        private boolean hashing;
+        private boolean completed;
+
+        // Chunks being written; only changed while the cache remaps this entry
+        private volatile int pins;
+
+        UploadSession(String id, String fileName, String contentType, long size, String expectedSha256, Path partFile) {
+            this.id = id;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.size = size;
+            this.expectedSha256 = expectedSha256;
+            this.partFile = partFile;
+        }
+
+        // Returns a copy of the prefix hash when this chunk continues it, null otherwise
+        MessageDigest reserve(long start, long end){
+            lock.lock();
+            try {
+                if (completed) throw new ConflictException("Upload " + id + " is already completing");
+                if (overlaps(start, end)) {
+                    throw new ConflictException("Bytes " + start + "-" + (end - 1) + " were already received or are being uploaded");
+                }
+                inFlight.add(new long[]{start, end});
+                if (start != watermark || hashing) return null;
+                hashing = true;
+                return (MessageDigest) prefixDigest.clone();
+            } catch (CloneNotSupportedException e){
+                throw new IllegalStateException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(long start, long end, boolean written, MessageDigest chunkPrefixDigest){
+            lock.lock();
+            try {
+                inFlight.removeIf(range -> range[0] == start && range[1] == end);
+                if (written) add(start, end);
+                if (chunkPrefixDigest != null) {
+                    hashing = false;
+                    if (written) {
+                        prefixDigest = chunkPrefixDigest;
+                        watermark = end;
+                    }
+                }
+                catchUp();
+            } catch (IOException e){
+                // The prefix stays where it is and is caught up again by the next chunk or on completion
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Hashes the received bytes right after the watermark, reading back only what arrived out of order
+        void catchUp() throws IOException {
+            if (hashing) return;
+            Map.Entry<Long, Long> range = received.floorEntry(watermark);
+            if (range == null || range.getValue() <= watermark) return;
+            try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                long position = watermark;
+                while (position < range.getValue()) {
+                    buffer.clear().limit((int) Math.min(BUFFER_SIZE, range.getValue() - position));
+                    int read = channel.read(buffer, position);
+                    if (read <= 0) throw new IOException("Part file is shorter than its received ranges");
+                    prefixDigest.update(buffer.array(), 0, read);
+                    position += read;
+                }
+                watermark = position;
+            }
+        }
+
+        private boolean overlaps(long start, long end){
+            Map.Entry<Long, Long> before = received.lowerEntry(end);
+            if (before != null && before.getValue() > start) return true;
+            for (long[] range : inFlight) {
+                if (range[0] < end && start < range[1]) return true;
+            }
+            return false;
+        }
+
+        private void add(long start, long end){
+            Map.Entry<Long, Long> before = received.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> after = received.ceilingEntry(start);
+            while (after != null && after.getKey() <= end) {
+                end = Math.max(end, after.getValue());
+                received.remove(after.getKey());
+                after = received.ceilingEntry(start);
+            }
+            received.put(start, end);
+        }
+
+        long received(){
+            lock.lock();
+            try {
+                long total = 0;
+                for (Map.Entry<Long, Long> range : received.entrySet()) {
+                    total += range.getValue() - range.getKey();
+                }
+                return total;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<String> ranges(){
+            lock.lock();
+            try {
+                var ranges = new ArrayList<String>(received.size());
+                for (Map.Entry<Long, Long> range : received.entrySet()) {
+                    ranges.add(range.getKey() + "-" + (range.getValue() - 1));
+                }
+                return ranges;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        UploadSessionVO toVO(){
+            var vo = new UploadSessionVO();
+            vo.setId(id);
+            vo.setFileName(fileName);
+            vo.setContentType(contentType);
+            vo.setSize(size);
+            vo.setSha256(expectedSha256);
+            vo.setReceived(received());
+            vo.setReceivedRanges(ranges());
+            return vo;
+        }
+    }
+}
@@ -1,29 +1,116 @@
 package br.com.xmetrocubo.services;
 
+import br.com.xmetrocubo.model.User;
 import br.com.xmetrocubo.repositories.UserRepository;
+import br.com.xmetrocubo.security.jwt.RevokedUsers;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.logging.Logger;
+import java.time.Duration;
+import java.util.Locale;
 
 @Service
-public class UserServices implements UserDetailsService {
+public class UserServices implements UserDetailsService, UserDetailsPasswordService {
 
-    private Logger logger = Logger.getLogger(UserServices.class.getName());
+    private Logger logger = LoggerFactory.getLogger(UserServices.class);
+
+    @Value("${security.user-cache.expire-length:300000}")
+    private long cacheExpireLength = 300000;
+
+    @Value("${security.user-cache.max-size:10000}")
+    private long cacheMaxSize = 10000;
 
     @Autowired
     private UserRepository repository;
 
+    @Autowired
+    private RevokedUsers revokedUsers;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, UserDetails> cache;
+
     public UserServices(UserRepository repository) {
         this.repository = repository;
     }
 
+    @PostConstruct
+    protected void init(){
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(cacheExpireLength))
+                .recordStats()
+                .build();
+        if (meterRegistry != null){
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "users.details");
+        }
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        logger.info("Finding one user by name " + username + "!");
+        return cache.get(key(username), key -> findUser(username));
+    }
+
+    // Called by the authentication provider after a successful sign-in whose hash uses an older work factor
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        var entity = repository.findByUserName(user.getUsername());
+        if (entity == null){
+            return user;
+        }
+        logger.info("Rehashing the password of user {}!", user.getUsername());
+        entity.setPassword(newPassword);
+        var updated = repository.save(entity);
+        evictUser(user.getUsername());
+        return updated;
+    }
+
+    public void disableUser(String username){
+        var entity = findUser(username);
+        entity.setEnabled(false);
+        cutOff(entity);
+    }
+
+    public void lockUser(String username){
+        var entity = findUser(username);
+        entity.setAccountNonLocked(false);
+        cutOff(entity);
+    }
+
+    // Evicted before revoking, so a sign-in racing with this reloads the disabled user instead of getting a token
+    // issued after the revocation. The revocation also covers the stateless JWT mode, where the cache is never read
+    private void cutOff(User entity){
+        logger.info("Cutting off user {} and revoking its tokens!", entity.getUsername());
+        repository.save(entity);
+        evictUser(entity.getUsername());
+        revokedUsers.revoke(entity.getUsername());
+    }
+
+    // Must be called whenever a user is disabled, locked or has its permissions changed
+    public void evictUser(String username){
+        cache.invalidate(key(username));
+    }
+
+    // user_name is compared case-insensitively by MySQL, so "Leandro" and "leandro" are the same cached user
+    private static String key(String username){
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private User findUser(String username) {
+        logger.debug("Finding one user by name {}!", username);
         var user = repository.findByUserName(username);
         if (user != null){
             return user;
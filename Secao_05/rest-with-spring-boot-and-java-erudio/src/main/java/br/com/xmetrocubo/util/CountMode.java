@@ -0,0 +1,15 @@
+package br.com.xmetrocubo.util;
+
+import br.com.xmetrocubo.exceptions.InvalidParameterException;
+
+public enum CountMode {
+
+    EXACT, APPROXIMATE, NONE;
+
+    public static CountMode of(String value) {
+        if (value == null || "exact".equalsIgnoreCase(value)) return EXACT;
+        if ("none".equalsIgnoreCase(value)) return NONE;
+        if ("approximate".equalsIgnoreCase(value)) return APPROXIMATE;
+        throw new InvalidParameterException("Unknown count mode " + value + ", expected exact, approximate or none");
+    }
+}
@@ -0,0 +1,56 @@
+package br.com.xmetrocubo.util;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Strong ETags derived from the entity @Version, which changes on every committed update, and the negotiated
+// representation, since the JSON, XML and YAML bodies of one version are not byte for byte the same
+public class ETags {
+
+    // Same order as the produces list of the endpoints, so */* ends up on JSON like it does in Spring MVC
+    private static final List<MediaType> REPRESENTATIONS = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, new MediaType("application", "x-yaml"));
+
+    private ETags() {
+    }
+
+    public static String of(Long version, String accept) {
+        return "\"" + (version == null ? 0 : version) + "-" + representation(accept).getSubtype() + "\"";
+    }
+
+    public static MediaType representation(String accept) {
+        if (accept == null || accept.isBlank()) return REPRESENTATIONS.get(0);
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return REPRESENTATIONS.get(0);
+        }
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) continue;
+            for (MediaType representation : REPRESENTATIONS) {
+                if (type.isCompatibleWith(representation)) return representation;
+            }
+        }
+        return REPRESENTATIONS.get(0);
+    }
+
+    // If-Match uses the strong comparison, so weak tags never match; a missing header means no precondition.
+    // Only the version decides, a tag taken from any representation of the current version is accepted
+    public static boolean matches(String ifMatch, Long version) {
+        if (ifMatch == null || ifMatch.isBlank()) return true;
+        var current = "\"" + (version == null ? 0 : version) + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || (tag.startsWith(current) && tag.endsWith("\"") && tag.length() > current.length() + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.xmetrocubo.util;
+
+public enum ExportFormat {
+
+    NDJSON(MediaType.APPLICATION_NDJSON), CSV(MediaType.TEXT_CSV);
+
+    private final String mediaType;
+
+    ExportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static ExportFormat fromAccept(String accept) {
+        if (accept != null && accept.toLowerCase().contains(MediaType.TEXT_CSV)) return CSV;
+        return NDJSON;
+    }
+}
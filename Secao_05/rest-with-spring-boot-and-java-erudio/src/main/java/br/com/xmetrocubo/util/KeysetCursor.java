@@ -0,0 +1,53 @@
+package br.com.xmetrocubo.util;
+
+import br.com.xmetrocubo.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class KeysetCursor {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final String value;
+    private final Long id;
+
+    public KeysetCursor(String value, Long id) {
+        this.value = value;
+        this.id = id;
+    }
+
+    public static String encode(String value, Long id) {
+        String raw = id + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new KeysetCursor(raw.substring(separator + 1), Long.valueOf(raw.substring(0, separator)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid page cursor " + cursor);
+        }
+    }
+
+    // Below one row there is no page to return, above the maximum the page is cut down rather than refused
+    public static int pageSize(Integer size) {
+        if (size == null || size < 1) {
+            throw new InvalidCursorException("Page size must be at least 1");
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
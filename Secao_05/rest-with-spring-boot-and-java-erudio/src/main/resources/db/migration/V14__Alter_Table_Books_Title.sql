@@ -0,0 +1,3 @@
+ALTER TABLE `books`
+	MODIFY COLUMN `title` VARCHAR(250) NOT NULL,
+	ADD INDEX `idx_books_title_id` (`title`, `id`);
@@ -0,0 +1,4 @@
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+ALTER TABLE `person`
+	ADD FULLTEXT INDEX `ft_person_name` (`first_name`, `last_name`) WITH PARSER ngram;
@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS `person_seq` (
+  `next_val` bigint DEFAULT NULL
+);
+
+INSERT INTO `person_seq` (`next_val`) SELECT COALESCE(MAX(`id`), 0) + 51 FROM `person`;
+
+CREATE TABLE IF NOT EXISTS `books_seq` (
+  `next_val` bigint DEFAULT NULL
+);
+
+INSERT INTO `books_seq` (`next_val`) SELECT COALESCE(MAX(`id`), 0) + 51 FROM `books`;
@@ -0,0 +1,19 @@
+CREATE TABLE IF NOT EXISTS `file_blob` (
+  `sha256` CHAR(64) NOT NULL,
+  `size` BIGINT NOT NULL,
+  `ref_count` INT NOT NULL,
+  `created_at` DATETIME(6) NOT NULL,
+  PRIMARY KEY (`sha256`),
+  KEY `idx_file_blob_ref_count` (`ref_count`)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS `stored_file` (
+  `file_name` VARCHAR(255) NOT NULL,
+  `sha256` CHAR(64) NOT NULL,
+  `content_type` VARCHAR(255),
+  `size` BIGINT NOT NULL,
+  `created_at` DATETIME(6) NOT NULL,
+  PRIMARY KEY (`file_name`),
+  KEY `fk_stored_file_blob` (`sha256`),
+  CONSTRAINT `fk_stored_file_blob` FOREIGN KEY (`sha256`) REFERENCES `file_blob` (`sha256`)
+) ENGINE=InnoDB;
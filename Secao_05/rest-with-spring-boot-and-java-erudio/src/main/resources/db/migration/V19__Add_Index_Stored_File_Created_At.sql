@@ -0,0 +1,2 @@
+ALTER TABLE `stored_file`
+	ADD KEY `idx_stored_file_created_at` (`created_at`);
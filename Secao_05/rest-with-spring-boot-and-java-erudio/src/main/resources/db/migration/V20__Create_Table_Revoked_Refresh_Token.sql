@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS `revoked_refresh_token` (
+  `jti` CHAR(36) NOT NULL,
+  `user_name` VARCHAR(255) NOT NULL,
+  `expires_at` DATETIME(6) NOT NULL,
+  PRIMARY KEY (`jti`),
+  KEY `idx_revoked_refresh_token_expires_at` (`expires_at`)
+) ENGINE=InnoDB;
@@ -16,7 +16,8 @@ public class AbstractIntegrationTest {
 
     static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
 
-        static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0.30");
+        static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0.30")
+                .withUrlParam("rewriteBatchedStatements", "true");
 
         private static void startContainers(){
             Startables.deepStart(Stream.of(mysql)).join();
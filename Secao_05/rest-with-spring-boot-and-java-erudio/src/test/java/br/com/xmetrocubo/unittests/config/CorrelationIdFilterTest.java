@@ -0,0 +1,42 @@
+package br.com.xmetrocubo.unittests.config;
+
+import br.com.xmetrocubo.config.CorrelationIdFilter;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorrelationIdFilterTest {
+
+    private final CorrelationIdFilter filter = new CorrelationIdFilter();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final AtomicReference<String> logged = new AtomicReference<>();
+
+    @Test
+    void keepsIncomingId() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/api/person/v1");
+        request.addHeader(CorrelationIdFilter.HEADER, "abc-123");
+
+        filter.doFilter(request, response, (req, res) -> logged.set(MDC.get(CorrelationIdFilter.MDC_KEY)));
+
+        assertEquals("abc-123", logged.get());
+        assertEquals("abc-123", response.getHeader(CorrelationIdFilter.HEADER));
+        assertNull(MDC.get(CorrelationIdFilter.MDC_KEY));
+    }
+
+    @Test
+    void replacesMissingOrInvalidId() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/api/person/v1");
+        request.addHeader(CorrelationIdFilter.HEADER, "forged\nline");
+
+        filter.doFilter(request, response, (req, res) -> logged.set(MDC.get(CorrelationIdFilter.MDC_KEY)));
+
+        assertNotNull(logged.get());
+        assertNotEquals("forged\nline", logged.get());
+        assertEquals(logged.get(), response.getHeader(CorrelationIdFilter.HEADER));
+    }
+}
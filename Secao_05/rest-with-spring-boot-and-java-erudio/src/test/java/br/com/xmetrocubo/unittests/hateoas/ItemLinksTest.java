@@ -0,0 +1,63 @@
+package br.com.xmetrocubo.unittests.hateoas;
+
+import br.com.xmetrocubo.controller.BookController;
+import br.com.xmetrocubo.controller.PersonController;
+import br.com.xmetrocubo.hateoas.ItemLinks;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.EvoInflectorLinkRelationProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+class ItemLinksTest {
+
+    // Link.equals also compares affordances, which methodOn links carry and plain links do not, while the
+    // HAL _links a client receives leave them out. So the serialized output is what has to match
+    private final ObjectMapper halMapper = new ObjectMapper().registerModule(new Jackson2HalModule());
+
+    @BeforeEach
+    void setUp() {
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new EvoInflectorLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void selfLinkMatchesMethodOnWithoutRequest() throws Exception {
+        assertEquals(hal(linkTo(methodOn(PersonController.class).findById(1L, null)).withSelfRel()),
+                hal(ItemLinks.of(PersonController.class).self(1L)));
+    }
+
+    @Test
+    void selfLinkMatchesMethodOnWithinRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/book/v1");
+        request.setServerPort(8888);
+        request.addHeader("X-Forwarded-Host", "erudio.com.br");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        var itemLinks = ItemLinks.of(BookController.class);
+        for (long id = 1; id <= 3; id++) {
+            assertEquals(hal(linkTo(methodOn(BookController.class).findById(id, null)).withSelfRel()), hal(itemLinks.self(id)));
+        }
+    }
+
+    private String hal(Link link) throws Exception {
+        return halMapper.writeValueAsString(new RepresentationModel<>(link));
+    }
+}
@@ -0,0 +1,70 @@
+package br.com.xmetrocubo.unittests.mapper;
+
+import br.com.xmetrocubo.data.vo.v1.BookVO;
+import br.com.xmetrocubo.mapper.DozerMapper;
+import br.com.xmetrocubo.model.Book;
+import br.com.xmetrocubo.unittests.mapper.mocks.MockBook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookConverterTest {
+
+    MockBook inputObject;
+
+    @BeforeEach
+    public void setUp() {
+        inputObject = new MockBook();
+    }
+
+    @Test
+    public void parseEntityToVOTest() {
+        Book entity = inputObject.mockEntity();
+        BookVO output = DozerMapper.parseObject(entity, BookVO.class);
+        assertEquals(Long.valueOf(0L), output.getKey());
+        assertEquals("Some Author0", output.getAuthor());
+        assertEquals("Some Title0", output.getTitle());
+        assertEquals(25D, output.getPrice());
+        assertEquals(entity.getLaunchDate(), output.getLaunchDate());
+        assertNotSame(entity.getLaunchDate(), output.getLaunchDate());
+        assertTrue(output.getLinks().isEmpty());
+    }
+
+    @Test
+    public void parseEntityListToVOListTest() {
+        List<BookVO> outputList = DozerMapper.parseListObjects(inputObject.mockEntityList(), BookVO.class);
+        assertEquals(14, outputList.size());
+
+        BookVO outputSeven = outputList.get(7);
+        assertEquals(Long.valueOf(7L), outputSeven.getKey());
+        assertEquals("Some Author7", outputSeven.getAuthor());
+        assertEquals("Some Title7", outputSeven.getTitle());
+        assertEquals(25D, outputSeven.getPrice());
+        assertNotNull(outputSeven.getLaunchDate());
+    }
+
+    @Test
+    public void parseVOToEntityTest() {
+        Book output = DozerMapper.parseObject(inputObject.mockVO(), Book.class);
+        assertEquals(Long.valueOf(0L), output.getId());
+        assertEquals("Some Author0", output.getAuthor());
+        assertEquals("Some Title0", output.getTitle());
+        assertEquals(25D, output.getPrice());
+        assertNotNull(output.getLaunchDate());
+    }
+
+    @Test
+    public void parserVOListToEntityListTest() {
+        List<Book> outputList = DozerMapper.parseListObjects(inputObject.mockVOList(), Book.class);
+        assertEquals(14, outputList.size());
+
+        Book outputTwelve = outputList.get(12);
+        assertEquals(Long.valueOf(12L), outputTwelve.getId());
+        assertEquals("Some Author12", outputTwelve.getAuthor());
+        assertEquals("Some Title12", outputTwelve.getTitle());
+        assertEquals(25D, outputTwelve.getPrice());
+    }
+}
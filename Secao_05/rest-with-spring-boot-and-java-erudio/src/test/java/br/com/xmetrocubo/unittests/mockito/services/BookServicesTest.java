@@ -1,24 +1,52 @@
 package br.com.xmetrocubo.unittests.mockito.services;
 
 import br.com.xmetrocubo.data.vo.v1.BookVO;
+import br.com.xmetrocubo.exceptions.InvalidCursorException;
+import br.com.xmetrocubo.exceptions.PayloadTooLargeException;
+import br.com.xmetrocubo.exceptions.PreconditionFailedException;
 import br.com.xmetrocubo.exceptions.RequiredObjectIsNullException;
+import br.com.xmetrocubo.hateoas.SlicedModel;
 import br.com.xmetrocubo.model.Book;
 import br.com.xmetrocubo.repositories.BookRepository;
+import br.com.xmetrocubo.services.ApproximateCountCache;
 import br.com.xmetrocubo.services.BookServices;
+import br.com.xmetrocubo.services.ResponseCache;
 import br.com.xmetrocubo.unittests.mapper.mocks.MockBook;
+import br.com.xmetrocubo.util.CountMode;
+import br.com.xmetrocubo.util.KeysetCursor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -34,6 +62,18 @@ class BookServicesTest {
     @Mock
     BookRepository repository;
 
+    @Mock
+    ResponseCache responseCache;
+
+    @Mock
+    ApproximateCountCache approximateCounts;
+
+    @Mock
+    PagedResourcesAssembler<BookVO> assembler;
+
+    @Mock
+    EntityManager entityManager;
+
     @BeforeEach
     void setUpMocks() throws Exception {
         input = new MockBook();
@@ -148,4 +188,138 @@ class BookServicesTest {
         service.delete(1L);
     }
 
+    @Test
+    void testFindAllByCursorContinuesWithinTies() {
+        List<Book> page = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Book book = input.mockEntity(1);
+            book.setId(id);
+            book.setTitle("Same Title");
+            page.add(book);
+        }
+        when(repository.findKeysetFirstPage(any(Pageable.class))).thenReturn(page);
+
+        var result = service.findAllByCursor(null, null, 2, Sort.Direction.ASC);
+
+        assertEquals(2, result.getContent().size());
+        String next = UriComponentsBuilder.fromUriString(result.getLink(IanaLinkRelations.NEXT).orElseThrow().getHref())
+                .build().getQueryParams().getFirst("after");
+        var cursor = KeysetCursor.decode(next);
+        // The cursor carries the id as tie-breaker, so the next page starts after id 2 and not after the whole title
+        assertEquals("Same Title", cursor.getValue());
+        assertEquals(2L, cursor.getId());
+
+        service.findAllByCursor(next, null, 2, Sort.Direction.ASC);
+
+        verify(repository).findKeysetAfter(eq("Same Title"), eq(2L), any(Pageable.class));
+    }
+
+    @Test
+    void testFindAllByCursorPageSize() {
+        when(repository.findKeysetFirstPage(any(Pageable.class))).thenReturn(List.of());
+
+        assertThrows(InvalidCursorException.class, () -> service.findAllByCursor(null, null, 0, Sort.Direction.ASC));
+        assertThrows(InvalidCursorException.class, () -> service.findAllByCursor(null, null, -5, Sort.Direction.ASC));
+
+        service.findAllByCursor(null, null, 5000, Sort.Direction.ASC);
+
+        ArgumentCaptor<Pageable> limit = ArgumentCaptor.forClass(Pageable.class);
+        verify(repository).findKeysetFirstPage(limit.capture());
+        assertEquals(KeysetCursor.MAX_PAGE_SIZE + 1, limit.getValue().getPageSize());
+    }
+
+    @Test
+    void testFindAllWithoutCount() {
+        List<Book> books = List.of(input.mockEntity(1), input.mockEntity(2));
+        when(repository.findAllSliced(any(Pageable.class))).thenReturn(new SliceImpl<>(books, PageRequest.of(1, 2), true));
+
+        var result = service.findAll(PageRequest.of(1, 2), CountMode.NONE);
+
+        assertInstanceOf(SlicedModel.class, result);
+        var metadata = ((SlicedModel<?>) result).getMetadata();
+        assertEquals(1, metadata.getNumber());
+        assertTrue(metadata.isHasNext());
+        assertTrue(result.getLink(IanaLinkRelations.PREV).isPresent());
+        assertTrue(result.getLink(IanaLinkRelations.NEXT).isPresent());
+        verify(repository, never()).count();
+        verify(repository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindAllWithApproximateCount() {
+        List<Book> books = List.of(input.mockEntity(1), input.mockEntity(2));
+        when(repository.findAllSliced(any(Pageable.class))).thenReturn(new SliceImpl<>(books, PageRequest.of(3, 2), true));
+        // The cached total is older than the rows seen by this slice
+        when(approximateCounts.count(eq("book"), any())).thenReturn(5L);
+
+        service.findAll(PageRequest.of(3, 2), CountMode.APPROXIMATE);
+
+        ArgumentCaptor<Page<BookVO>> page = ArgumentCaptor.forClass(Page.class);
+        verify(assembler).toModel(page.capture(), any(Link.class));
+        assertEquals(9, page.getValue().getTotalElements());
+        assertEquals(2, page.getValue().getContent().size());
+        verify(repository, never()).count();
+    }
+
+    @Test
+    void testBulkCreateTooManyItems() {
+        List<BookVO> books = new ArrayList<>();
+        for (int i = 0; i <= 1000; i++) {
+            books.add(input.mockVO(i));
+        }
+
+        assertThrows(PayloadTooLargeException.class, () -> service.bulkCreate(books));
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void testBulkUpdateRejectsStaleItem() {
+        List<Book> entities = List.of(input.mockEntity(1), input.mockEntity(2));
+        entities.forEach(b -> b.setVersion(3L));
+        when(repository.findAllById(any())).thenReturn(entities);
+        var current = input.mockVO(1);
+        current.setVersion(3L);
+        var stale = input.mockVO(2);
+        stale.setVersion(2L);
+
+        var exception = assertThrows(PreconditionFailedException.class, () -> service.bulkUpdate(new ArrayList<>(List.of(current, stale))));
+
+        assertTrue(exception.getMessage().contains("2"));
+        verify(entityManager, never()).flush();
+    }
+
+    @Test
+    void testBulkUpdateReturnsFlushedVersions() {
+        List<Book> entities = List.of(input.mockEntity(1), input.mockEntity(2));
+        entities.forEach(b -> b.setVersion(3L));
+        when(repository.findAllById(any())).thenReturn(entities);
+        // Stands in for Hibernate raising @Version on flush
+        doAnswer(invocation -> {
+            entities.forEach(b -> b.setVersion(b.getVersion() + 1));
+            return null;
+        }).when(entityManager).flush();
+        var versioned = input.mockVO(1);
+        versioned.setVersion(3L);
+        var unconditional = input.mockVO(2);
+
+        var result = service.bulkUpdate(new ArrayList<>(List.of(versioned, unconditional)));
+
+        assertEquals(2, result.size());
+        assertEquals(4L, result.get(0).getVersion());
+        assertEquals(4L, result.get(1).getVersion());
+        assertEquals("Some Title2", result.get(1).getTitle());
+    }
+
+    @Test
+    void testBulkItemVersionsAreReadFromJson() throws Exception {
+        var book = input.mockEntity(1);
+        book.setVersion(3L);
+        when(repository.findAllById(any())).thenReturn(List.of(book));
+
+        List<BookVO> books = new ObjectMapper().readValue("[{\"id\":1,\"title\":\"Some Title1\",\"version\":2}]", new TypeReference<>() {});
+
+        assertThrows(PreconditionFailedException.class, () -> service.bulkUpdate(books));
+        verify(entityManager, never()).flush();
+    }
 }
@@ -1,11 +1,16 @@
 package br.com.xmetrocubo.unittests.mockito.services;
 
 import br.com.xmetrocubo.data.vo.v1.PersonVO;
+import br.com.xmetrocubo.exceptions.PreconditionFailedException;
 import br.com.xmetrocubo.exceptions.RequiredObjectIsNullException;
 import br.com.xmetrocubo.model.Person;
 import br.com.xmetrocubo.repositories.PersonRepository;
 import br.com.xmetrocubo.services.PersonServices;
+import br.com.xmetrocubo.services.ResponseCache;
 import br.com.xmetrocubo.unittests.mapper.mocks.MockPerson;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -14,12 +19,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +42,12 @@ class PersonServicesTest {
     @Mock
     PersonRepository repository;
 
+    @Mock
+    ResponseCache responseCache;
+
+    @Mock
+    EntityManager entityManager;
+
     @BeforeEach
     void setUpMocks() {
         input = new MockPerson();
@@ -174,4 +189,75 @@ class PersonServicesTest {
         when(repository.findById(1L)).thenReturn(Optional.of(entity));
         service.delete(1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void bulkCreate() {
+        ReflectionTestUtils.setField(service, "batchSize", 5);
+        AtomicLong ids = new AtomicLong();
+        doAnswer(invocation -> {
+            invocation.<Person>getArgument(0).setId(ids.incrementAndGet());
+            return null;
+        }).when(entityManager).persist(any(Person.class));
+
+        var result = service.bulkCreate(input.mockVOList());
+        assertEquals(14, result.size());
+
+        var personOne = result.get(0);
+        assertEquals(1L, personOne.getKey());
+        assertTrue(personOne.toString().contains("links: [</api/person/v1/1>;rel=\"self\"]"));
+        assertEquals("First Name Test0", personOne.getFirstName());
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void bulkCreateWithNullPerson() {
+        List<PersonVO> people = new ArrayList<>(input.mockVOList());
+        people.add(null);
+        assertThrows(RequiredObjectIsNullException.class, () -> service.bulkCreate(people));
+        assertThrows(RequiredObjectIsNullException.class, () -> service.bulkCreate(null));
+    }
+
+    @Test
+    void findByIdNotModified() {
+        Person entity = input.mockEntity(1);
+        entity.setVersion(3L);
+        when(repository.findById(1L)).thenReturn(Optional.of(entity));
+
+        assertNull(service.findById(1L, version -> version == 3L));
+        assertNotNull(service.findById(1L, version -> version == 2L));
+    }
+
+    @Test
+    void updateWithStaleIfMatch() {
+        Person entity = input.mockEntity(1);
+        entity.setVersion(3L);
+        when(repository.findById(1L)).thenReturn(Optional.of(entity));
+
+        PersonVO vo = input.mockVO(1);
+        vo.setKey(1L);
+
+        assertThrows(PreconditionFailedException.class, () -> service.update(vo, "\"2-json\""));
+        verify(repository, never()).save(any(Person.class));
+    }
+
+    @Test
+    void bulkUpdateVersionTravelsThroughJson() throws Exception {
+        var mapper = new ObjectMapper();
+        Person entity = input.mockEntity(1);
+        entity.setVersion(3L);
+        when(repository.findAllById(any())).thenReturn(List.of(entity));
+        doAnswer(invocation -> {
+            entity.setVersion(entity.getVersion() + 1);
+            return null;
+        }).when(entityManager).flush();
+
+        List<PersonVO> stale = mapper.readValue("[{\"id\":1,\"firstName\":\"Ayrton\",\"version\":2}]", new TypeReference<>() {});
+        assertThrows(PreconditionFailedException.class, () -> service.bulkUpdate(stale));
+
+        List<PersonVO> current = mapper.readValue("[{\"id\":1,\"firstName\":\"Ayrton\",\"version\":3}]", new TypeReference<>() {});
+        var result = service.bulkUpdate(current);
+
+        assertEquals(4L, mapper.readTree(mapper.writeValueAsString(result)).get(0).get("version").asLong());
+    }
+}
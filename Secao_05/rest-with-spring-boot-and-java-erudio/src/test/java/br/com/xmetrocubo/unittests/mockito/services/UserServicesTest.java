@@ -0,0 +1,110 @@
+package br.com.xmetrocubo.unittests.mockito.services;
+
+import br.com.xmetrocubo.model.User;
+import br.com.xmetrocubo.repositories.UserRepository;
+import br.com.xmetrocubo.security.jwt.RevokedUsers;
+import br.com.xmetrocubo.services.UserServices;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class UserServicesTest {
+
+    private UserRepository repository;
+    private UserServices service;
+    private RevokedUsers revokedUsers;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUserName("leandro");
+        user.setPassword("old");
+        repository = mock(UserRepository.class);
+        when(repository.findByUserName(anyString())).thenReturn(user);
+        when(repository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        revokedUsers = new RevokedUsers();
+        ReflectionTestUtils.invokeMethod(revokedUsers, "init");
+
+        service = new UserServices(repository);
+        ReflectionTestUtils.setField(service, "revokedUsers", revokedUsers);
+        ReflectionTestUtils.invokeMethod(service, "init");
+    }
+
+    @Test
+    void testLoadUserByUsernameIsCached() {
+        assertSame(user, service.loadUserByUsername("leandro"));
+        assertSame(user, service.loadUserByUsername("leandro"));
+
+        verify(repository, times(1)).findByUserName(anyString());
+    }
+
+    @Test
+    void testCacheKeyIgnoresCase() {
+        service.loadUserByUsername("Leandro");
+        service.loadUserByUsername("leandro");
+        service.evictUser("LEANDRO");
+        service.loadUserByUsername("leandro");
+
+        verify(repository, times(2)).findByUserName(anyString());
+    }
+
+    @Test
+    void testUpdatePasswordEvictsCachedUser() {
+        service.loadUserByUsername("leandro");
+
+        var updated = service.updatePassword(user, "{pbkdf2-1000}new");
+        service.loadUserByUsername("leandro");
+
+        assertEquals("{pbkdf2-1000}new", updated.getPassword());
+        verify(repository).save(user);
+        // One lookup by updatePassword itself, then the cache is reloaded after the eviction
+        verify(repository, times(3)).findByUserName(anyString());
+    }
+
+    @Test
+    void testUnknownUserIsNotCached() {
+        when(repository.findByUserName("ghost")).thenReturn(null);
+
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("ghost"));
+
+        verify(repository, times(2)).findByUserName("ghost");
+    }
+
+    @Test
+    void testDisableUserCutsOffCachedUserAndTokens() {
+        user.setEnabled(true);
+        service.loadUserByUsername("leandro");
+        var issuedBefore = new Date();
+
+        service.disableUser("Leandro");
+
+        verify(repository).save(user);
+        assertFalse(service.loadUserByUsername("leandro").isEnabled());
+        // One lookup by disableUser itself, then the cache is reloaded after the eviction
+        verify(repository, times(3)).findByUserName(anyString());
+        assertTrue(revokedUsers.isRevoked("leandro", issuedBefore));
+    }
+
+    @Test
+    void testLockUserCutsOffTokens() {
+        user.setAccountNonLocked(true);
+        var issuedBefore = new Date();
+
+        service.lockUser("leandro");
+
+        verify(repository).save(user);
+        assertFalse(user.isAccountNonLocked());
+        assertTrue(revokedUsers.isRevoked("leandro", issuedBefore));
+    }
+}
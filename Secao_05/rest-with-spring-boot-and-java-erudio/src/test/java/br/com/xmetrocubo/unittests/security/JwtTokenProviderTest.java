@@ -0,0 +1,149 @@
+package br.com.xmetrocubo.unittests.security;
+
+import br.com.xmetrocubo.exceptions.InvalidJwtAuthenticationException;
+import br.com.xmetrocubo.security.jwt.JwtTokenFilter;
+import br.com.xmetrocubo.security.jwt.JwtTokenProvider;
+import br.com.xmetrocubo.security.jwt.RevokedRefreshTokens;
+import br.com.xmetrocubo.security.jwt.RevokedUsers;
+import br.com.xmetrocubo.security.jwt.VerifiedTokenCache;
+import com.auth0.jwt.JWT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class JwtTokenProviderTest {
+
+    private UserDetailsService userDetailsService;
+    private RevokedUsers revokedUsers;
+    private JwtTokenProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        userDetailsService = mock(UserDetailsService.class);
+        var tokenCache = new VerifiedTokenCache();
+        ReflectionTestUtils.invokeMethod(tokenCache, "init");
+        revokedUsers = new RevokedUsers();
+        ReflectionTestUtils.invokeMethod(revokedUsers, "init");
+
+        provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "secretKey", "53cr37");
+        ReflectionTestUtils.setField(provider, "stateless", true);
+        ReflectionTestUtils.setField(provider, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(provider, "tokenCache", tokenCache);
+        ReflectionTestUtils.setField(provider, "revokedUsers", revokedUsers);
+        ReflectionTestUtils.invokeMethod(provider, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testStatelessAuthenticationComesFromClaims() {
+        String token = provider.createAccessToken("leandro", List.of("ADMIN", "MANAGER")).getAccessToken();
+
+        var authentication = provider.getAuthentication(token);
+
+        assertEquals("leandro", authentication.getName());
+        assertEquals(List.of("ADMIN", "MANAGER"),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void testStatelessTokenShortLived() {
+        ReflectionTestUtils.setField(provider, "statelessValidityInMilliseconds", 300000L);
+
+        var token = provider.createAccessToken("leandro", List.of("ADMIN"));
+
+        assertEquals(300000L, token.getExpiration().getTime() - token.getCreated().getTime());
+    }
+
+    @Test
+    void testRevokedUserTokensRejected() {
+        String token = provider.createAccessToken("leandro", List.of("ADMIN")).getAccessToken();
+
+        revokedUsers.revoke("Leandro");
+
+        assertNull(provider.getAuthentication(token));
+    }
+
+    @Test
+    void testTokenIssuedRightAfterRevocationAccepted() throws Exception {
+        revokedUsers.revoke("leandro");
+        Thread.sleep(2);
+
+        String token = provider.createAccessToken("leandro", List.of("ADMIN")).getAccessToken();
+
+        assertNotNull(provider.getAuthentication(token));
+    }
+
+    @Test
+    void testRefreshTokenRotatesOnce() {
+        var revokedRefreshTokens = mock(RevokedRefreshTokens.class);
+        ReflectionTestUtils.setField(provider, "revokedRefreshTokens", revokedRefreshTokens);
+        var user = User.withUsername("leandro").password("").authorities("ADMIN").build();
+        String refreshToken = "Bearer " + provider.createAccessToken("leandro", List.of("ADMIN")).getRefreshToken();
+        when(revokedRefreshTokens.revoke(any(), eq("leandro"), any())).thenReturn(true);
+
+        assertNotNull(provider.refreshToken(refreshToken, user));
+
+        // Seen again: the filter-first check refuses it without trying to revoke it a second time
+        when(revokedRefreshTokens.isRevoked(any())).thenReturn(true);
+        var issuedBeforeReuse = new Date();
+        assertThrows(InvalidJwtAuthenticationException.class, () -> provider.refreshToken(refreshToken, user));
+        verify(revokedRefreshTokens, times(1)).revoke(any(), any(), any());
+        assertTrue(revokedUsers.isRevoked("leandro", issuedBeforeReuse));
+    }
+
+    @Test
+    void testRefreshTokenRefusedByFilter() throws Exception {
+        var tokens = provider.createAccessToken("leandro", List.of("ADMIN"));
+        var filter = new JwtTokenFilter(provider);
+
+        var request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + tokens.getRefreshToken());
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertTrue(JWT.decode(tokens.getRefreshToken()).getClaim("roles").isMissing());
+
+        request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + tokens.getAccessToken());
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals("leandro", SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @Test
+    void testRefreshTokenIgnoresUserNameCase() {
+        var revokedRefreshTokens = mock(RevokedRefreshTokens.class);
+        ReflectionTestUtils.setField(provider, "revokedRefreshTokens", revokedRefreshTokens);
+        var user = User.withUsername("leandro").password("").authorities("ADMIN").build();
+        String refreshToken = "Bearer " + provider.createAccessToken("Leandro", List.of("ADMIN")).getRefreshToken();
+        when(revokedRefreshTokens.revoke(any(), eq("Leandro"), any())).thenReturn(true);
+
+        assertNotNull(provider.refreshToken(refreshToken, user));
+    }
+}
@@ -0,0 +1,58 @@
+package br.com.xmetrocubo.unittests.security;
+
+import br.com.xmetrocubo.security.PasswordEncoders;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordEncodersTest {
+
+    // Seeded for leandro in V8__Insert_Data_In_Users.sql
+    private static final String SEEDED_HASH = "19bbf735b27066f2f145e602624e1b24a3fbc54cd5dfd3143fc5feea6bdee9e139ca7332d4806b9f";
+
+    private final PasswordEncoder encoder = PasswordEncoders.create(1000);
+
+    @Test
+    void matchesSeededLegacyHashAndAsksForUpgrade() {
+        assertTrue(encoder.matches("admin123", SEEDED_HASH));
+        assertFalse(encoder.matches("wrong", SEEDED_HASH));
+        assertTrue(encoder.upgradeEncoding(SEEDED_HASH));
+    }
+
+    @Test
+    void encodesWithConfiguredWorkFactor() {
+        String encoded = encoder.encode("admin123");
+
+        assertTrue(encoded.startsWith("{pbkdf2-1000}"));
+        assertTrue(encoder.matches("admin123", encoded));
+        assertFalse(encoder.upgradeEncoding(encoded));
+    }
+
+    @Test
+    void matchesPreviousWorkFactorAndAsksForUpgrade() {
+        String encoded = PasswordEncoders.create(500).encode("admin123");
+
+        assertTrue(encoder.matches("admin123", encoded));
+        assertFalse(encoder.matches("wrong", encoded));
+        assertTrue(encoder.upgradeEncoding(encoded));
+    }
+
+    @Test
+    void rejectsUnknownIds() {
+        assertFalse(encoder.matches("admin123", "{pbkdf2-abc}" + SEEDED_HASH));
+        assertFalse(encoder.matches("admin123", "{bcrypt}" + SEEDED_HASH));
+    }
+
+    @Test
+    void fallbackEncoderEncodesAtCurrentWorkFactor() {
+        var previousWorkFactors = (PasswordEncoder) ReflectionTestUtils.getField(encoder, "defaultPasswordEncoderForMatches");
+
+        String encoded = previousWorkFactors.encode("admin123");
+
+        assertTrue(encoded.startsWith("{pbkdf2-1000}"));
+        assertTrue(encoder.matches("admin123", encoded));
+        assertFalse(encoder.upgradeEncoding(encoded));
+    }
+}
@@ -0,0 +1,127 @@
+package br.com.xmetrocubo.unittests.security;
+
+import br.com.xmetrocubo.model.RevokedRefreshToken;
+import br.com.xmetrocubo.repositories.RevokedRefreshTokenRepository;
+import br.com.xmetrocubo.security.jwt.RevokedRefreshTokens;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RevokedRefreshTokensTest {
+
+    private final UUID persisted = UUID.randomUUID();
+
+    private RevokedRefreshTokenRepository repository;
+    private RevokedRefreshTokens revokedTokens;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RevokedRefreshTokenRepository.class);
+        when(repository.findUnexpired(any())).thenReturn(List.of(
+                new RevokedRefreshToken(persisted.toString(), "leandro", new Date(System.currentTimeMillis() + 60000))));
+
+        revokedTokens = new RevokedRefreshTokens();
+        ReflectionTestUtils.setField(revokedTokens, "repository", repository);
+        ReflectionTestUtils.setField(revokedTokens, "expectedInsertions", 1000);
+        ReflectionTestUtils.invokeMethod(revokedTokens, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(revokedTokens, "shutdown");
+    }
+
+    @Test
+    void rebuildsFromTableOnStartup() {
+        assertTrue(revokedTokens.isRevoked(persisted));
+        assertFalse(revokedTokens.isRevoked(UUID.randomUUID()));
+    }
+
+    @Test
+    void revokesOnlyOnce() {
+        var jti = UUID.randomUUID();
+        var expiresAt = new Date(System.currentTimeMillis() + 60000);
+
+        assertTrue(revokedTokens.revoke(jti, "leandro", expiresAt));
+        assertFalse(revokedTokens.revoke(jti, "leandro", expiresAt));
+
+        assertTrue(revokedTokens.isRevoked(jti));
+        ReflectionTestUtils.invokeMethod(revokedTokens, "shutdown");
+        verify(repository, times(1)).saveAll(List.of(new RevokedRefreshToken(jti.toString(), "leandro", expiresAt)));
+        verify(repository, never()).save(any(RevokedRefreshToken.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writesRevocationsBehindInBatches() throws Exception {
+        // Holds the writer on the first batch, so the following revocations pile up behind it
+        var writing = new CountDownLatch(1);
+        var proceed = new CountDownLatch(1);
+        List<Integer> batchSizes = new ArrayList<>();
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            batchSizes.add(((List<RevokedRefreshToken>) invocation.getArgument(0)).size());
+            writing.countDown();
+            proceed.await();
+            return invocation.getArgument(0);
+        });
+        var expiresAt = new Date(System.currentTimeMillis() + 60000);
+
+        assertTrue(revokedTokens.revoke(UUID.randomUUID(), "leandro", expiresAt));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(revokedTokens.revoke(UUID.randomUUID(), "leandro", expiresAt));
+        }
+        proceed.countDown();
+
+        ReflectionTestUtils.invokeMethod(revokedTokens, "shutdown");
+        assertEquals(List.of(1, 10), batchSizes);
+        assertEquals(12, revokedTokens.size());
+    }
+
+    @Test
+    void newTokensArePersistedWithoutMerge() {
+        var token = new RevokedRefreshToken(UUID.randomUUID().toString(), "leandro", new Date());
+
+        assertTrue(token.isNew());
+        assertEquals(token.getJti(), token.getId());
+    }
+
+    @Test
+    void purgeForgetsExpiredTokens() {
+        var expired = UUID.randomUUID();
+        revokedTokens.revoke(expired, "leandro", new Date(System.currentTimeMillis() - 1000));
+
+        assertEquals(1, revokedTokens.purgeExpired());
+
+        assertFalse(revokedTokens.isRevoked(expired));
+        assertTrue(revokedTokens.isRevoked(persisted));
+        verify(repository).deleteExpired(any());
+    }
+
+    // The exact set settles whatever the filter lets through
+    @Test
+    void neverReportsTokensThatWereNotRevoked() {
+        for (int i = 0; i < 1000; i++) {
+            revokedTokens.revoke(UUID.randomUUID(), "leandro", new Date(System.currentTimeMillis() + 60000));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (revokedTokens.isRevoked(UUID.randomUUID())) falsePositives++;
+        }
+
+        assertEquals(0, falsePositives);
+    }
+}
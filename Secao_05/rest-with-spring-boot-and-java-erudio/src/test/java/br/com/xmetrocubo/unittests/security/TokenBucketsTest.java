@@ -0,0 +1,57 @@
+package br.com.xmetrocubo.unittests.security;
+
+import br.com.xmetrocubo.security.TokenBuckets;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketsTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void allowsBurstThenRejectsUntilRefill() {
+        var buckets = new TokenBuckets(1024, 3, 60, now::get);
+
+        assertEquals(0, buckets.tryAcquire("leandro"));
+        assertEquals(0, buckets.tryAcquire("leandro"));
+        assertEquals(0, buckets.tryAcquire("leandro"));
+        long wait = buckets.tryAcquire("leandro");
+
+        assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1));
+        now.addAndGet(wait);
+        assertEquals(0, buckets.tryAcquire("leandro"));
+    }
+
+    @Test
+    void keysDoNotShareBuckets() {
+        var buckets = new TokenBuckets(1 << 20, 1, 1, now::get);
+
+        assertEquals(0, buckets.tryAcquire("leandro"));
+        assertTrue(buckets.tryAcquire("leandro") > 0);
+        assertEquals(0, buckets.tryAcquire("flavio"));
+    }
+
+    @Test
+    void releaseGivesTheTokenBack() {
+        var buckets = new TokenBuckets(1024, 1, 1, now::get);
+
+        assertEquals(0, buckets.tryAcquire("127.0.0.1"));
+        buckets.release("127.0.0.1");
+
+        assertEquals(0, buckets.tryAcquire("127.0.0.1"));
+    }
+
+    @Test
+    void neverHoldsMoreThanItsCapacity() {
+        var buckets = new TokenBuckets(1024, 2, 60, now::get);
+        now.addAndGet(TimeUnit.HOURS.toNanos(1));
+
+        assertEquals(0, buckets.tryAcquire("leandro"));
+        assertEquals(0, buckets.tryAcquire("leandro"));
+        assertTrue(buckets.tryAcquire("leandro") > 0);
+    }
+}
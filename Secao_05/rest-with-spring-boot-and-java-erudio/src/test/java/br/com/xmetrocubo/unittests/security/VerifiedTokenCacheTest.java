@@ -0,0 +1,60 @@
+package br.com.xmetrocubo.unittests.security;
+
+import br.com.xmetrocubo.security.jwt.VerifiedTokenCache;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private final Algorithm algorithm = Algorithm.HMAC256("secret");
+    private final JWTVerifier verifier = JWT.require(algorithm).build();
+
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VerifiedTokenCache();
+        ReflectionTestUtils.invokeMethod(cache, "init");
+    }
+
+    @Test
+    void verifiesEachTokenOnlyOnce() {
+        String token = JWT.create()
+                .withSubject("leandro")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60000))
+                .sign(algorithm);
+        AtomicInteger verifications = new AtomicInteger();
+
+        DecodedJWT first = cache.get(token, t -> { verifications.incrementAndGet(); return verifier.verify(t); });
+        DecodedJWT second = cache.get(token, t -> { verifications.incrementAndGet(); return verifier.verify(t); });
+
+        assertEquals("leandro", first.getSubject());
+        assertSame(first, second);
+        assertEquals(1, verifications.get());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void doesNotCacheInvalidTokens() {
+        String token = JWT.create()
+                .withSubject("leandro")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60000))
+                .sign(Algorithm.HMAC256("another-secret"));
+
+        assertThrows(JWTVerificationException.class, () -> cache.get(token, verifier::verify));
+        assertThrows(JWTVerificationException.class, () -> cache.get(token, verifier::verify));
+        assertEquals(0, cache.stats().hitCount());
+    }
+}
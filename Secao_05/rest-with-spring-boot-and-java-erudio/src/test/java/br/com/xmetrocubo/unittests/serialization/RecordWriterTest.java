@@ -0,0 +1,62 @@
+package br.com.xmetrocubo.unittests.serialization;
+
+import br.com.xmetrocubo.model.Person;
+import br.com.xmetrocubo.serialization.export.RecordWriter;
+import br.com.xmetrocubo.util.ExportFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecordWriterTest {
+
+    private static final List<RecordWriter.Column<Person>> COLUMNS = List.of(
+            RecordWriter.Column.of("id", Person::getId),
+            RecordWriter.Column.of("firstName", Person::getFirstName),
+            RecordWriter.Column.of("address", Person::getAddress),
+            RecordWriter.Column.of("enabled", Person::getEnabled));
+
+    @Test
+    void writesOneJsonObjectPerLine() throws IOException {
+        assertEquals("{\"id\":1,\"firstName\":\"Ayrton\",\"address\":\"São Paulo, \\\"SP\\\"\",\"enabled\":true}\n" +
+                        "{\"id\":2,\"firstName\":\"Alain\",\"address\":null,\"enabled\":false}\n",
+                export(ExportFormat.NDJSON));
+    }
+
+    @Test
+    void writesCsvWithHeaderAndQuotedFields() throws IOException {
+        assertEquals("id,firstName,address,enabled\r\n" +
+                        "1,Ayrton,\"São Paulo, \"\"SP\"\"\",true\r\n" +
+                        "2,Alain,,false\r\n",
+                export(ExportFormat.CSV));
+    }
+
+    @Test
+    void picksCsvOnlyWhenAccepted() {
+        assertEquals(ExportFormat.CSV, ExportFormat.fromAccept("text/csv"));
+        assertEquals(ExportFormat.NDJSON, ExportFormat.fromAccept("application/x-ndjson"));
+        assertEquals(ExportFormat.NDJSON, ExportFormat.fromAccept(null));
+    }
+
+    private String export(ExportFormat format) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var writer = RecordWriter.of(format, out, COLUMNS);
+        writer.write(person(1L, "Ayrton", "São Paulo, \"SP\"", true));
+        writer.write(person(2L, "Alain", null, false));
+        writer.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Person person(Long id, String firstName, String address, Boolean enabled) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFirstName(firstName);
+        person.setAddress(address);
+        person.setEnabled(enabled);
+        return person;
+    }
+}
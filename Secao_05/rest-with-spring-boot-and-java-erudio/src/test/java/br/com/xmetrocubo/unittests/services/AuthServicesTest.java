@@ -0,0 +1,62 @@
+package br.com.xmetrocubo.unittests.services;
+
+import br.com.xmetrocubo.data.vo.v1.security.AccountCredentialsVO;
+import br.com.xmetrocubo.exceptions.ServiceUnavailableException;
+import br.com.xmetrocubo.services.AuthServices;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuthServicesTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private AuthServices service;
+
+    @BeforeEach
+    void setUp() {
+        var authenticationManager = mock(AuthenticationManager.class);
+        when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+            release.await();
+            throw new BadCredentialsException("Bad credentials");
+        });
+
+        service = new AuthServices();
+        ReflectionTestUtils.setField(service, "authenticationManager", authenticationManager);
+        ReflectionTestUtils.setField(service, "signinThreads", 1);
+        ReflectionTestUtils.setField(service, "signinQueueCapacity", 1);
+        ReflectionTestUtils.invokeMethod(service, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        ReflectionTestUtils.invokeMethod(service, "shutdown");
+    }
+
+    @Test
+    void testSigninRejectedWhenSaturated() {
+        var credentials = new AccountCredentialsVO("leandro", "admin123");
+        var running = service.signin(credentials);
+        var queued = service.signin(credentials);
+
+        assertThrows(ServiceUnavailableException.class, () -> service.signin(credentials));
+
+        release.countDown();
+        var exception = assertThrows(CompletionException.class, running::join);
+        assertInstanceOf(BadCredentialsException.class, exception.getCause());
+        assertThrows(CompletionException.class, queued::join);
+    }
+
+}
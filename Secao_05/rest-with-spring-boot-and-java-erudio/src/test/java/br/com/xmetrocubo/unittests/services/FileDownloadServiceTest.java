@@ -0,0 +1,154 @@
+package br.com.xmetrocubo.unittests.services;
+
+import br.com.xmetrocubo.exceptions.MyFileNotFoundException;
+import br.com.xmetrocubo.model.StoredFile;
+import br.com.xmetrocubo.services.FileDownloadService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileDownloadServiceTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private FileDownloadService service;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.writeString(dir.resolve("report.txt"), CONTENT);
+        service = new FileDownloadService();
+        request = new MockHttpServletRequest("GET", "/api/file/v1/downloadFile/report.txt");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void testWholeFile() throws Exception {
+        service.send(file, "report.txt", "text/plain", request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(20, response.getContentLengthLong());
+        assertEquals(CONTENT, response.getContentAsString());
+        assertTrue(response.getHeader(HttpHeaders.CONTENT_DISPOSITION).contains("report.txt"));
+    }
+
+    @Test
+    void testSingleRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+
+        service.send(file, "report.txt", "text/plain", request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 5-9/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("56789", response.getContentAsString());
+    }
+
+    @Test
+    void testSuffixRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+        service.send(file, "report.txt", "text/plain", request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 17-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("hij", response.getContentAsString());
+    }
+
+    @Test
+    void testMultipleRanges() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,10-11");
+
+        service.send(file, "report.txt", "text/plain", request, response);
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = response.getContentAsString(StandardCharsets.US_ASCII);
+        assertEquals(body.length(), response.getContentLengthLong());
+        assertTrue(body.contains("Content-Range: bytes 0-1/20\r\n\r\n01\r\n"));
+        assertTrue(body.contains("Content-Range: bytes 10-11/20\r\n\r\nab\r\n"));
+        assertTrue(body.endsWith("--\r\n"));
+    }
+
+    @Test
+    void testStaleIfRangeSendsWholeFile() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+
+        service.send(file, "report.txt", "text/plain", request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void testUnsatisfiableRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=50-60");
+
+        service.send(file, "report.txt", "text/plain", request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testSendfileWhenSupported() throws Exception {
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+
+        service.send(file, "report.txt", "text/plain", request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(5L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testStoredFileUsesContentHashAsETag() throws Exception {
+        var stored = new StoredFile();
+        stored.setFileName("report.txt");
+        stored.setSha256("abc123");
+        stored.setSize(20L);
+        stored.setCreatedAt(new Date(1_000_000L));
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc123\"");
+
+        service.send(file, stored, "text/plain", request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals("\"abc123\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testMissingBlobFailsBeforeSendfile() throws Exception {
+        var stored = new StoredFile();
+        stored.setFileName("report.txt");
+        stored.setSha256("abc123");
+        stored.setSize(20L);
+        stored.setCreatedAt(new Date(1_000_000L));
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        Files.delete(file);
+
+        assertThrows(MyFileNotFoundException.class, () -> service.send(file, stored, "text/plain", request, response));
+
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+        assertFalse(response.isCommitted());
+    }
+}
@@ -0,0 +1,256 @@
+package br.com.xmetrocubo.unittests.services;
+
+import br.com.xmetrocubo.config.FileStorageConfig;
+import br.com.xmetrocubo.data.vo.v1.StoredFileVO;
+import br.com.xmetrocubo.exceptions.FileStorageException;
+import br.com.xmetrocubo.exceptions.PayloadTooLargeException;
+import br.com.xmetrocubo.model.FileBlob;
+import br.com.xmetrocubo.model.StoredFile;
+import br.com.xmetrocubo.repositories.FileBlobRepository;
+import br.com.xmetrocubo.repositories.StoredFileRepository;
+import br.com.xmetrocubo.services.FileStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class FileStorageServiceTest {
+
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path dir;
+
+    private StoredFileRepository storedFileRepository;
+    private FileBlobRepository fileBlobRepository;
+    private FileStorageService service;
+    private final Map<String, StoredFile> names = new ConcurrentHashMap<>();
+    private final Map<String, Integer> refCounts = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        var config = new FileStorageConfig();
+        config.setUploadDir(dir.toString());
+        config.setMaxUploadSize(DataSize.ofBytes(16));
+        config.setUploadBatchConcurrency(8);
+        storedFileRepository = mock(StoredFileRepository.class);
+        fileBlobRepository = mock(FileBlobRepository.class);
+        when(storedFileRepository.findById(anyString())).thenReturn(Optional.empty());
+        @SuppressWarnings("unchecked")
+        PagedResourcesAssembler<StoredFileVO> assembler = mock(PagedResourcesAssembler.class);
+        service = new FileStorageService(config, storedFileRepository, fileBlobRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), assembler);
+    }
+
+    @Test
+    void testStoreStream() throws Exception {
+        var result = service.storeStream("hello.txt", "text/plain", hello());
+
+        assertEquals("hello.txt", result.getFileName());
+        assertEquals("text/plain", result.getFileType());
+        assertEquals(5, result.getSize());
+        assertEquals(HELLO_SHA256, result.getSha256());
+        assertEquals("hello", Files.readString(blob(HELLO_SHA256)));
+        verify(fileBlobRepository).save(any(FileBlob.class));
+        verify(storedFileRepository).save(any(StoredFile.class));
+    }
+
+    @Test
+    void testStoreStreamDuplicateOnlyAddsReference() throws Exception {
+        service.storeStream("hello.txt", "text/plain", hello());
+        when(fileBlobRepository.incrementRefCount(HELLO_SHA256)).thenReturn(1);
+
+        var result = service.storeStream("copy.txt", "text/plain", hello());
+
+        assertEquals(HELLO_SHA256, result.getSha256());
+        verify(fileBlobRepository, times(1)).save(any(FileBlob.class));
+        verify(storedFileRepository, times(2)).save(any(StoredFile.class));
+        try (var parts = Files.list(dir.resolve(".parts"))) {
+            assertEquals(0, parts.count());
+        }
+    }
+
+    @Test
+    void testStoreStreamReplacingNameReleasesPreviousBlob() {
+        var previous = new StoredFile();
+        previous.setFileName("hello.txt");
+        previous.setSha256("previous");
+        when(storedFileRepository.findById("hello.txt")).thenReturn(Optional.of(previous));
+
+        service.storeStream("hello.txt", "text/plain", hello());
+
+        verify(fileBlobRepository).decrementRefCount("previous");
+        assertEquals(HELLO_SHA256, previous.getSha256());
+    }
+
+    @Test
+    void testStoreStreamTooLarge() throws Exception {
+        assertThrows(PayloadTooLargeException.class,
+                () -> service.storeStream("big.bin", null, new ByteArrayInputStream(new byte[17])));
+
+        verify(storedFileRepository, never()).save(any(StoredFile.class));
+        try (var parts = Files.list(dir.resolve(".parts"))) {
+            assertEquals(0, parts.count());
+        }
+    }
+
+    @Test
+    void testStoreStreamWithInvalidPath() {
+        assertThrows(FileStorageException.class,
+                () -> service.storeStream("../escape.txt", null, new ByteArrayInputStream(new byte[1])));
+    }
+
+    @Test
+    void testStoreFilesReportsErrorsPerFile() {
+        var files = new MultipartFile[]{
+                new MockMultipartFile("files", "a.txt", "text/plain", "aaa".getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile("files", "big.bin", null, new byte[17]),
+                new MockMultipartFile("files", "b.txt", "text/plain", "bbb".getBytes(StandardCharsets.UTF_8))
+        };
+
+        var results = service.storeFiles(files);
+
+        assertEquals(3, results.size());
+        assertEquals("a.txt", results.get(0).getFileName());
+        assertNull(results.get(0).getError());
+        assertNotNull(results.get(0).getSha256());
+        assertEquals("big.bin", results.get(1).getFileName());
+        assertNotNull(results.get(1).getError());
+        assertEquals("b.txt", results.get(2).getFileName());
+        assertNull(results.get(2).getError());
+    }
+
+    @Test
+    void testCollectGarbage() throws Exception {
+        service.storeStream("hello.txt", "text/plain", hello());
+        when(fileBlobRepository.findUnreferenced(any())).thenReturn(List.of(HELLO_SHA256));
+        when(fileBlobRepository.deleteIfUnreferenced(HELLO_SHA256)).thenReturn(1);
+
+        assertEquals(1, service.collectGarbage());
+        assertFalse(Files.exists(blob(HELLO_SHA256)));
+    }
+
+    @Test
+    void testStoreFilesWithSameNameKeepsOneReference() {
+        useInMemoryRepositories();
+        var files = new MultipartFile[8];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = new MockMultipartFile("files", "same.txt", "text/plain", ("version " + i).getBytes(StandardCharsets.UTF_8));
+        }
+
+        var results = service.storeFiles(files);
+
+        results.forEach(result -> assertNull(result.getError()));
+        assertEquals(1, names.size());
+        assertEquals(Map.of(names.get("same.txt").getSha256(), 1), referenced());
+    }
+
+    @Test
+    void testDeleteFileRacingUploadOfSameName() throws Exception {
+        useInMemoryRepositories();
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 50; i++) {
+                service.storeStream("same.txt", "text/plain", content("old " + i));
+                var replacement = content("new " + i);
+                var start = new CountDownLatch(1);
+                var upload = executor.submit(() -> {
+                    start.await();
+                    return service.storeStream("same.txt", "text/plain", replacement);
+                });
+                var delete = executor.submit(() -> {
+                    start.await();
+                    service.deleteFile("same.txt");
+                    return null;
+                });
+                start.countDown();
+                upload.get();
+                delete.get();
+
+                // Whichever ran last, every remaining name holds exactly one reference and nothing else does
+                var expected = new HashMap<String, Integer>();
+                names.values().forEach(stored -> expected.merge(stored.getSha256(), 1, Integer::sum));
+                assertEquals(expected, referenced());
+                names.clear();
+                refCounts.clear();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Stands in for the database: every findById hands out its own copy, like rows read in separate transactions,
+    // and pauses before returning so any unserialized read-modify-write on the same name interleaves
+    private void useInMemoryRepositories() {
+        when(storedFileRepository.findById(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(10);
+            return Optional.ofNullable(names.get(invocation.<String>getArgument(0))).map(FileStorageServiceTest::copy);
+        });
+        when(storedFileRepository.save(any(StoredFile.class))).thenAnswer(invocation -> {
+            StoredFile stored = invocation.getArgument(0);
+            names.put(stored.getFileName(), copy(stored));
+            return stored;
+        });
+        doAnswer(invocation -> names.remove(invocation.<StoredFile>getArgument(0).getFileName()))
+                .when(storedFileRepository).delete(any(StoredFile.class));
+        when(fileBlobRepository.save(any(FileBlob.class))).thenAnswer(invocation -> {
+            FileBlob blob = invocation.getArgument(0);
+            refCounts.put(blob.getSha256(), blob.getRefCount());
+            return blob;
+        });
+        when(fileBlobRepository.incrementRefCount(anyString())).thenAnswer(invocation ->
+                refCounts.computeIfPresent(invocation.getArgument(0), (sha256, count) -> count + 1) == null ? 0 : 1);
+        when(fileBlobRepository.decrementRefCount(anyString())).thenAnswer(invocation ->
+                refCounts.computeIfPresent(invocation.getArgument(0), (sha256, count) -> Math.max(count - 1, 0)) == null ? 0 : 1);
+    }
+
+    private Map<String, Integer> referenced() {
+        var referenced = new HashMap<>(refCounts);
+        referenced.values().removeIf(count -> count == 0);
+        return referenced;
+    }
+
+    private static StoredFile copy(StoredFile stored) {
+        var copy = new StoredFile();
+        copy.setFileName(stored.getFileName());
+        copy.setSha256(stored.getSha256());
+        copy.setContentType(stored.getContentType());
+        copy.setSize(stored.getSize());
+        copy.setCreatedAt(stored.getCreatedAt());
+        return copy;
+    }
+
+    private static ByteArrayInputStream content(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ByteArrayInputStream hello() {
+        return new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Path blob(String sha256) {
+        return dir.resolve("blobs").resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+}
@@ -0,0 +1,60 @@
+package br.com.xmetrocubo.unittests.services;
+
+import br.com.xmetrocubo.controller.BookController;
+import br.com.xmetrocubo.controller.PersonController;
+import br.com.xmetrocubo.services.ResponseCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ResponseCache();
+        ReflectionTestUtils.invokeMethod(cache, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void onlyConfiguredPathsAreCacheable() {
+        assertTrue(cache.isCacheable("/api/person/v1"));
+        assertTrue(cache.isCacheable("/api/book/v1"));
+        assertFalse(cache.isCacheable("/api/person/v1/1"));
+    }
+
+    @Test
+    void evictBumpsOnlyTheControllerPaths() {
+        cache.put(cache.generation("/api/person/v1") + "|people", new ResponseCache.CachedResponse("application/json", new byte[]{1}));
+
+        cache.evict(PersonController.class);
+
+        assertEquals(1, cache.generation("/api/person/v1"));
+        assertEquals(0, cache.generation("/api/book/v1"));
+        assertNull(cache.get(cache.generation("/api/person/v1") + "|people"));
+    }
+
+    @Test
+    void evictWaitsForTheCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.evict(BookController.class);
+        assertEquals(0, cache.generation("/api/book/v1"));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, cache.generation("/api/book/v1"));
+    }
+}
@@ -0,0 +1,228 @@
+package br.com.xmetrocubo.unittests.services;
+
+import br.com.xmetrocubo.config.FileStorageConfig;
+import br.com.xmetrocubo.data.vo.v1.StoredFileVO;
+import br.com.xmetrocubo.data.vo.v1.UploadSessionVO;
+import br.com.xmetrocubo.exceptions.ConflictException;
+import br.com.xmetrocubo.exceptions.InvalidUploadException;
+import br.com.xmetrocubo.model.StoredFile;
+import br.com.xmetrocubo.repositories.FileBlobRepository;
+import br.com.xmetrocubo.repositories.StoredFileRepository;
+import br.com.xmetrocubo.services.FileStorageService;
+import br.com.xmetrocubo.services.UploadSessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class UploadSessionServiceTest {
+
+    private static final byte[] CONTENT = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path dir;
+
+    private FileStorageConfig config;
+    private StoredFileRepository storedFileRepository;
+    private UploadSessionService service;
+
+    @BeforeEach
+    void setUp() {
+        config = new FileStorageConfig();
+        config.setUploadDir(dir.toString());
+        storedFileRepository = mock(StoredFileRepository.class);
+        when(storedFileRepository.findById(anyString())).thenReturn(Optional.empty());
+        @SuppressWarnings("unchecked")
+        PagedResourcesAssembler<StoredFileVO> assembler = mock(PagedResourcesAssembler.class);
+        var storage = new FileStorageService(config, storedFileRepository, mock(FileBlobRepository.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), assembler);
+
+        service = new UploadSessionService();
+        ReflectionTestUtils.setField(service, "fileStorageService", storage);
+        ReflectionTestUtils.setField(service, "fileStorageConfig", config);
+        ReflectionTestUtils.invokeMethod(service, "init");
+    }
+
+    @Test
+    void testChunksInAnyOrder() throws Exception {
+        String sha256 = sha256(CONTENT, 0, CONTENT.length);
+        var session = service.create(request(sha256));
+
+        write(session.getId(), 20, CONTENT.length);
+        write(session.getId(), 0, 10);
+        var status = write(session.getId(), 10, 20);
+        assertEquals(List.of("0-" + (CONTENT.length - 1)), status.getReceivedRanges());
+
+        var result = service.complete(session.getId());
+
+        assertEquals(sha256, result.getSha256());
+        assertEquals(CONTENT.length, result.getSize());
+        verify(storedFileRepository).save(any(StoredFile.class));
+        Path blob = dir.resolve("blobs").resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+        assertArrayEquals(CONTENT, Files.readAllBytes(blob));
+    }
+
+    @Test
+    void testOverlappingChunkIsRejected() throws Exception {
+        var session = service.create(request(null));
+        write(session.getId(), 0, 10);
+
+        assertThrows(ConflictException.class, () -> write(session.getId(), 5, 15));
+    }
+
+    @Test
+    void testChunkWithWrongChecksumIsNotReceived() {
+        var session = service.create(request(null));
+
+        assertThrows(InvalidUploadException.class, () -> service.writeChunk(session.getId(), 0, 10,
+                sha256(CONTENT, 1, 11), new ByteArrayInputStream(CONTENT, 0, 10)));
+
+        assertEquals(0, service.find(session.getId()).getReceived());
+    }
+
+    @Test
+    void testCompleteWithMissingBytes() throws Exception {
+        var session = service.create(request(null));
+        write(session.getId(), 0, 10);
+
+        assertThrows(InvalidUploadException.class, () -> service.complete(session.getId()));
+        assertEquals(10, service.find(session.getId()).getReceived());
+    }
+
+    @Test
+    void testChunkPastTheEndIsRejectedWithoutOverflow() {
+        var session = service.create(request(null));
+
+        assertThrows(InvalidUploadException.class, () -> service.writeChunk(session.getId(), Long.MAX_VALUE - 5, 10,
+                null, new ByteArrayInputStream(CONTENT, 0, 10)));
+        assertThrows(InvalidUploadException.class, () -> service.writeChunk(session.getId(), 10, Long.MAX_VALUE,
+                null, new ByteArrayInputStream(CONTENT, 0, 10)));
+        assertThrows(InvalidUploadException.class, () -> service.writeChunk(session.getId(), -1, 10,
+                null, new ByteArrayInputStream(CONTENT, 0, 10)));
+        assertThrows(InvalidUploadException.class, () -> service.writeChunk(session.getId(), CONTENT.length - 5, 10,
+                null, new ByteArrayInputStream(CONTENT, 0, 10)));
+        assertEquals(0, service.find(session.getId()).getReceived());
+    }
+
+    @Test
+    void testSessionDoesNotExpireWhileWritingAChunk() throws Exception {
+        config.setUploadSessionExpireAfter(100);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        String sha256 = sha256(CONTENT, 0, CONTENT.length);
+        var session = service.create(request(sha256));
+
+        // Idle for four times the expiry in the middle of the chunk
+        var slow = new ByteArrayInputStream(CONTENT) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos == 0) {
+                    try {
+                        Thread.sleep(400);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.read(b, off, len);
+            }
+        };
+        var status = service.writeChunk(session.getId(), 0, CONTENT.length, null, slow);
+
+        assertEquals(CONTENT.length, status.getReceived());
+        assertEquals(sha256, service.complete(session.getId()).getSha256());
+    }
+
+    @Test
+    void testSessionCountIsBoundedButWritesArePinned() throws Exception {
+        config.setUploadSessionMaxCount(1);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        var writing = service.create(request(null));
+        var started = new CountDownLatch(1);
+        var proceed = new CountDownLatch(1);
+        var blocked = new ByteArrayInputStream(CONTENT, 0, 10) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                started.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.read(b, off, len);
+            }
+        };
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var write = executor.submit(() -> service.writeChunk(writing.getId(), 0, 10, null, blocked));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 3; i++) {
+                service.create(request(null));
+            }
+
+            // Only one idle session is kept, the pinned one is not counted and keeps its part file
+            awaitParts(2);
+            assertEquals(0, service.find(writing.getId()).getReceived());
+            proceed.countDown();
+            assertEquals(10, write.get(5, TimeUnit.SECONDS).getReceived());
+        } finally {
+            proceed.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitParts(long expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        long count;
+        do {
+            Thread.sleep(10);
+            try (var parts = Files.list(dir.resolve(".parts"))) {
+                count = parts.count();
+            }
+        } while (count != expected && System.nanoTime() < deadline);
+        assertEquals(expected, count);
+    }
+
+    private UploadSessionVO request(String sha256) {
+        var request = new UploadSessionVO();
+        request.setFileName("fox.txt");
+        request.setContentType("text/plain");
+        request.setSize((long) CONTENT.length);
+        request.setSha256(sha256);
+        return request;
+    }
+
+    private UploadSessionVO write(String id, int start, int end) throws Exception {
+        return service.writeChunk(id, start, end - start, sha256(CONTENT, start, end),
+                new ByteArrayInputStream(CONTENT, start, end - start));
+    }
+
+    private static String sha256(byte[] data, int start, int end) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, start, end - start);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
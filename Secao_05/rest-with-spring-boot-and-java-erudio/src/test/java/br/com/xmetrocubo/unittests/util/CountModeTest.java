@@ -0,0 +1,26 @@
+package br.com.xmetrocubo.unittests.util;
+
+import br.com.xmetrocubo.exceptions.InvalidParameterException;
+import br.com.xmetrocubo.util.CountMode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountModeTest {
+
+    @Test
+    void testOf() {
+        assertEquals(CountMode.EXACT, CountMode.of("exact"));
+        assertEquals(CountMode.EXACT, CountMode.of(null));
+        assertEquals(CountMode.APPROXIMATE, CountMode.of("Approximate"));
+        assertEquals(CountMode.NONE, CountMode.of("NONE"));
+    }
+
+    @Test
+    void testOfUnknownValue() {
+        var exception = assertThrows(InvalidParameterException.class, () -> CountMode.of("estimated"));
+
+        assertTrue(exception.getMessage().contains("estimated"));
+        assertThrows(InvalidParameterException.class, () -> CountMode.of(""));
+    }
+}
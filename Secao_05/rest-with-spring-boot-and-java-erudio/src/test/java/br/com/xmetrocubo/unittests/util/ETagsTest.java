@@ -0,0 +1,39 @@
+package br.com.xmetrocubo.unittests.util;
+
+import br.com.xmetrocubo.util.ETags;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagsTest {
+
+    @Test
+    void testTagPerRepresentation() {
+        assertEquals("\"3-json\"", ETags.of(3L, "application/json"));
+        assertEquals("\"3-xml\"", ETags.of(3L, "application/xml"));
+        assertEquals("\"3-x-yaml\"", ETags.of(3L, "application/x-yaml"));
+        assertEquals("\"0-json\"", ETags.of(null, null));
+    }
+
+    @Test
+    void testTagFollowsNegotiation() {
+        assertEquals("\"1-json\"", ETags.of(1L, "*/*"));
+        assertEquals("\"1-xml\"", ETags.of(1L, "text/html, application/xml;q=0.9, */*;q=0.8"));
+        assertEquals("\"1-x-yaml\"", ETags.of(1L, "application/json;q=0.5, application/x-yaml"));
+        assertEquals("\"1-json\"", ETags.of(1L, "application/xml;q=0, */*"));
+        assertEquals("\"1-json\"", ETags.of(1L, "not a media type"));
+    }
+
+    @Test
+    void testMatches() {
+        assertTrue(ETags.matches(null, 3L));
+        assertTrue(ETags.matches("*", 3L));
+        assertTrue(ETags.matches("\"3-json\"", 3L));
+        // Any representation of the current version satisfies the precondition
+        assertTrue(ETags.matches("\"2-json\", \"3-xml\"", 3L));
+        assertFalse(ETags.matches("\"2-json\"", 3L));
+        assertFalse(ETags.matches("W/\"3-json\"", 3L));
+        assertFalse(ETags.matches("\"3-\"", 3L));
+        assertFalse(ETags.matches("\"31-json\"", 3L));
+    }
+}
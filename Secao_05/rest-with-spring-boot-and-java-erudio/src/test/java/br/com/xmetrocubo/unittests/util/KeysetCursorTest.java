@@ -0,0 +1,46 @@
+package br.com.xmetrocubo.unittests.util;
+
+import br.com.xmetrocubo.exceptions.InvalidCursorException;
+import br.com.xmetrocubo.util.KeysetCursor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testEncodeDecode() {
+        var cursor = KeysetCursor.decode(KeysetCursor.encode("Ayrton: Senna", 42L));
+
+        assertEquals("Ayrton: Senna", cursor.getValue());
+        assertEquals(42L, cursor.getId());
+    }
+
+    @Test
+    void testEncodeDecodeUnicodeAndEmptyValue() {
+        assertEquals("Conceição", KeysetCursor.decode(KeysetCursor.encode("Conceição", 1L)).getValue());
+        assertEquals("", KeysetCursor.decode(KeysetCursor.encode("", 2L)).getValue());
+    }
+
+    @Test
+    void testDecodeWithoutCursor() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(" "));
+    }
+
+    @Test
+    void testDecodeInvalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode("bm8tc2VwYXJhdG9y"));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode("YWJjOnRpdGxl"));
+    }
+
+    @Test
+    void testPageSize() {
+        assertEquals(12, KeysetCursor.pageSize(12));
+        assertEquals(KeysetCursor.MAX_PAGE_SIZE, KeysetCursor.pageSize(100000));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.pageSize(0));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.pageSize(-1));
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.pageSize(null));
+    }
+}